@@ -0,0 +1,177 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tu_berlin.coga.jimplex.basis.BasisFactorization;
+import de.tu_berlin.coga.jimplex.basis.LUFactorization;
+import de.tu_berlin.coga.jimplex.pricing.DantzigPricing;
+import de.tu_berlin.coga.jimplex.pricing.DevexPricing;
+import de.tu_berlin.coga.jimplex.pricing.ParallelPricing;
+import de.tu_berlin.coga.jimplex.pricing.PartialPricing;
+import de.tu_berlin.coga.jimplex.pricing.PricingContext;
+import de.tu_berlin.coga.jimplex.pricing.PricingStrategy;
+import de.tu_berlin.coga.jimplex.pricing.SteepestEdgePricing;
+
+/**
+ * Measures single passes of the loops of a primal iteration: pricing all
+ * nonbasic columns and the ratio test over the basic variables.
+ *
+ * The state is that of a normalized random program with the slack basis and
+ * random duals, so that many columns are dual infeasible. The ratio test and
+ * the full pricing rules do not change the state, so every invocation does the
+ * same work. Partial pricing moves its window on every call, its score is the
+ * average over the window positions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IterationBenchmark {
+
+	@Benchmark
+	public int price(SlackBasis state, Pricing pricing) {
+		return pricing.strategy.selectEntering(state);
+	}
+
+	@Benchmark
+	public int ratioTest(SlackBasis state) {
+		return RevisedSimplex.ratioTest(state.alpha, 1, state.B, state.x, state.lower, state.upper);
+	}
+
+	/**
+	 * The fixed state offered to the pricing strategies. All nonbasic columns
+	 * are at their lower bound of zero, the basic slacks at the right hand
+	 * side.
+	 */
+	@State(Scope.Thread)
+	public static class SlackBasis implements PricingContext {
+		@Param({ "1000", "5000" })
+		int rows;
+
+		@Param({ "0.001", "0.01" })
+		double density;
+
+		private SparseMatrix A;
+		private BasisFactorization basis;
+		private int[] B;
+		private int[] nonBasic;
+		private double[] cost;
+		private double[] pi;
+		private double[] x;
+		private double[] lower;
+		private double[] upper;
+		/** the column chosen by Dantzig's rule, transformed by the basis */
+		private double[] alpha;
+
+		@Setup
+		public void setUp() {
+			// Positive coefficients make the slack basis feasible
+			LPGenerator generator = new LPGenerator(rows, 2 * rows, 42);
+			generator.setDensity(density);
+			generator.setPositiveCoefficients(true);
+			LinearProgram program = generator.generate();
+			program.normalize();
+			A = program.constraints;
+			int numRows = A.getNumRows();
+			int numStructural = program.getNumOriginalVariables();
+
+			// The slack of row i is the column after the structurals
+			B = new int[numRows];
+			for (int i = 0; i < numRows; i++) {
+				B[i] = numStructural + i;
+			}
+			nonBasic = new int[numStructural];
+			for (int j = 0; j < numStructural; j++) {
+				nonBasic[j] = j;
+			}
+			basis = new LUFactorization();
+			basis.factorize(A, B);
+
+			cost = program.obj;
+			Random random = new Random(42);
+			pi = new double[numRows];
+			for (int i = 0; i < numRows; i++) {
+				pi[i] = -random.nextDouble();
+			}
+			x = new double[A.getNumColumns()];
+			for (int i = 0; i < numRows; i++) {
+				x[B[i]] = program.rightHandSide[i];
+			}
+			lower = program.lowerBound;
+			upper = program.upperBound;
+
+			alpha = new double[numRows];
+			A.copyColumn(new DantzigPricing().selectEntering(this), alpha);
+			basis.ftran(alpha);
+		}
+
+		@Override
+		public SparseMatrix getMatrix() {
+			return A;
+		}
+
+		@Override
+		public BasisFactorization getBasis() {
+			return basis;
+		}
+
+		@Override
+		public int getBasic(int position) {
+			return B[position];
+		}
+
+		@Override
+		public int getNumNonBasic() {
+			return nonBasic.length;
+		}
+
+		@Override
+		public int getNonBasic(int i) {
+			return nonBasic[i];
+		}
+
+		@Override
+		public double dualInfeasibility(int j) {
+			double reducedCost = cost[j] - A.dotColumn(j, pi);
+			return (reducedCost < -1e-9) ? -reducedCost : 0;
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Pricing {
+		@Param({ "dantzig", "devex", "steepest", "partial", "parallel" })
+		String rule;
+
+		private PricingStrategy strategy;
+
+		@Setup
+		public void setUp(SlackBasis state) {
+			if ("dantzig".equals(rule)) {
+				strategy = new DantzigPricing();
+			} else if ("devex".equals(rule)) {
+				strategy = new DevexPricing();
+			} else if ("steepest".equals(rule)) {
+				strategy = new SteepestEdgePricing();
+			} else if ("partial".equals(rule)) {
+				strategy = new PartialPricing(Math.max(100, state.getNumNonBasic() / 10));
+			} else {
+				strategy = new ParallelPricing(new DantzigPricing());
+			}
+			strategy.init(state);
+		}
+	}
+}
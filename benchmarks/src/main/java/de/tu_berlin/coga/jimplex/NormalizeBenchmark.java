@@ -0,0 +1,55 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link LinearProgram#normalize()}. Every invocation works on a
+ * fresh copy of the program, as normalizing modifies it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class NormalizeBenchmark {
+	@Param({ "1000", "10000" })
+	int rows;
+
+	@Param({ "0.001", "0.01" })
+	double density;
+
+	private LinearProgram original;
+	private LinearProgram program;
+
+	@Setup
+	public void setUp() {
+		LPGenerator generator = new LPGenerator(rows, 2 * rows, 42);
+		generator.setDensity(density);
+		original = generator.generate();
+	}
+
+	@Setup(Level.Invocation)
+	public void copy() {
+		program = original.copy();
+	}
+
+	@Benchmark
+	public LinearProgram normalize() {
+		program.normalize();
+		return program;
+	}
+}
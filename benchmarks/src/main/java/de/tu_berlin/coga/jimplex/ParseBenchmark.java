@@ -0,0 +1,67 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reads an <code>.lp</code> file of a random program with
+ * {@link LPReader#readLP()} and {@link LPReader#readLP(ForkJoinPool)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+	@Param({ "1000", "10000" })
+	int rows;
+
+	@Param({ "0.001", "0.01" })
+	double density;
+
+	private File file;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = File.createTempFile("jimplex", ".lp");
+		LPGenerator generator = new LPGenerator(rows, 2 * rows, 42);
+		generator.setDensity(density);
+		generator.writeLP(file.getPath());
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public LPReader readSequential() throws IOException, ParseException {
+		LPReader reader = new LPReader(file.getPath());
+		reader.readLP();
+		return reader;
+	}
+
+	@Benchmark
+	public LPReader readParallel() throws IOException, ParseException {
+		LPReader reader = new LPReader(file.getPath());
+		reader.readLP(ForkJoinPool.commonPool());
+		return reader;
+	}
+}
@@ -0,0 +1,57 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
+import de.tu_berlin.coga.jimplex.exceptions.UnboundedLPException;
+
+/**
+ * Measures a complete {@link RevisedSimplex#solve()} of a normalized random
+ * program with the default settings, with and without incremental updates.
+ * The solver does not store the solution, so all invocations share the
+ * program.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SolveBenchmark {
+	@Param({ "50", "200" })
+	int rows;
+
+	@Param({ "0.05", "0.2" })
+	double density;
+
+	@Param({ "false", "true" })
+	boolean incremental;
+
+	private LinearProgram program;
+
+	@Setup
+	public void setUp() {
+		LPGenerator generator = new LPGenerator(rows, 2 * rows, 42);
+		generator.setDensity(density);
+		program = generator.generate().normalized();
+	}
+
+	@Benchmark
+	public int[] solve() throws InfeasibleLPException, UnboundedLPException {
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.setIncrementalUpdates(incremental);
+		return solver.solve();
+	}
+}
@@ -0,0 +1,316 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
+import de.tu_berlin.coga.jimplex.exceptions.UnboundedLPException;
+
+/**
+ * Solves many independent linear programs in one process.
+ *
+ * Programs are read on one executor and solved on another, so that waiting
+ * for the disk does not block the solver threads. Reading is I/O-bound and
+ * suits a large or cached pool, solving is CPU-bound and suits a fixed pool
+ * with about one thread per core.
+ *
+ * The results are returned as an iterator in the order in which the solves
+ * finish. The input is consumed lazily, at most <code>maxInFlight</code>
+ * programs are read or solved or wait to be taken from the iterator at any
+ * time. The memory of a batch is thus bounded however large it is, and a
+ * slow consumer slows down reading. The iterator must be used by one thread.
+ * It does not shut down the executors. A task that an executor rejects, e.g.
+ * because its queue is bounded, gives a {@link Status#FAILED} result.
+ */
+public class BatchSolver {
+	private final ExecutorService readers;
+	private final ExecutorService solvers;
+	private final int maxInFlight;
+
+	/**
+	 * @param readers
+	 *          executor that reads the files
+	 * @param solvers
+	 *          executor that solves the programs
+	 * @param maxInFlight
+	 *          maximal number of programs held at the same time
+	 */
+	public BatchSolver(ExecutorService readers, ExecutorService solvers, int maxInFlight) {
+		Preconditions.checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+		this.readers = Preconditions.checkNotNull(readers);
+		this.solvers = Preconditions.checkNotNull(solvers);
+		this.maxInFlight = maxInFlight;
+	}
+
+	/**
+	 * Reads and solves the programs in the given files. Files are read by
+	 * {@link LinearProgram#read(String)}, a file that cannot be read gives a
+	 * {@link Status#FAILED} result.
+	 */
+	public Iterator<Result> solveFiles(final Iterator<String> filenames) {
+		return new Results() {
+			@Override
+			boolean submitNext(final int index) {
+				if (!filenames.hasNext()) {
+					return false;
+				}
+				final String filename = filenames.next();
+				try {
+					readers.execute(new Runnable() {
+						@Override
+						public void run() {
+							final LinearProgram program;
+							try {
+								program = LinearProgram.read(filename);
+							} catch (Throwable t) {
+								complete(new Result(index, filename, t));
+								return;
+							}
+							try {
+								solvers.execute(new Runnable() {
+									@Override
+									public void run() {
+										complete(solve(index, filename, program, true));
+									}
+								});
+							} catch (RejectedExecutionException e) {
+								complete(new Result(index, filename, e));
+							}
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					complete(new Result(index, filename, e));
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Solves the given programs. They are not modified, each solve works on a
+	 * {@link LinearProgram#normalized() normalized} copy.
+	 */
+	public Iterator<Result> solve(final Iterator<LinearProgram> programs) {
+		return new Results() {
+			@Override
+			boolean submitNext(final int index) {
+				if (!programs.hasNext()) {
+					return false;
+				}
+				final LinearProgram program = programs.next();
+				try {
+					solvers.execute(new Runnable() {
+						@Override
+						public void run() {
+							complete(solve(index, null, program, false));
+						}
+					});
+				} catch (RejectedExecutionException e) {
+					complete(new Result(index, null, e));
+				}
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Solves one program and reports the outcome as a result, never throws.
+	 *
+	 * @param owned
+	 *          whether the program may be normalized in place
+	 */
+	private static Result solve(int index, String name, LinearProgram program, boolean owned) {
+		try {
+			boolean isMax = program.objGoal == ObjectiveGoal.MAX;
+			int numVariables = program.getNumOriginalVariables();
+			if (owned) {
+				program.normalize();
+			} else {
+				program = program.normalized();
+			}
+			RevisedSimplex solver = new RevisedSimplex(program);
+			try {
+				solver.solve();
+			} catch (InfeasibleLPException e) {
+				return new Result(index, name, Status.INFEASIBLE, solver.getIterations());
+			} catch (UnboundedLPException e) {
+				return new Result(index, name, Status.UNBOUNDED, solver.getIterations());
+			}
+			double value = solver.getObjectiveValue();
+			return new Result(index, name, isMax ? -value : value, Arrays.copyOf(solver.getSolution(), numVariables),
+					solver.getIterations());
+		} catch (Throwable t) {
+			return new Result(index, name, t);
+		}
+	}
+
+	/**
+	 * Hands out the results of the tasks that {@link #submitNext(int)} starts,
+	 * starting new tasks whenever a result has been taken.
+	 */
+	private abstract class Results extends AbstractIterator<Result> {
+		private final BlockingQueue<Result> completed = new LinkedBlockingQueue<Result>();
+		private int submitted;
+		private int inFlight;
+
+		/**
+		 * Starts the task of the next input, which has to pass its result to
+		 * {@link #complete(Result)}, also if an executor rejects it.
+		 *
+		 * @return <code>false</code> if the input is exhausted
+		 */
+		abstract boolean submitNext(int index);
+
+		void complete(Result result) {
+			completed.add(result);
+		}
+
+		@Override
+		protected Result computeNext() {
+			while (inFlight < maxInFlight && submitNext(submitted)) {
+				submitted++;
+				inFlight++;
+			}
+			if (inFlight == 0) {
+				return endOfData();
+			}
+			inFlight--;
+			return Uninterruptibles.takeUninterruptibly(completed);
+		}
+	}
+
+	public static enum Status {
+		/** an optimal solution was found */
+		OPTIMAL,
+		/** the program has no feasible solution */
+		INFEASIBLE,
+		/** the objective is unbounded */
+		UNBOUNDED,
+		/** the program could not be read or the solver failed */
+		FAILED
+	}
+
+	/**
+	 * The outcome of one program of a batch.
+	 */
+	public static class Result {
+		private final int index;
+		private final String name;
+		private final Status status;
+		private final double objectiveValue;
+		private final double[] solution;
+		private final int iterations;
+		private final Throwable error;
+
+		Result(int index, String name, double objectiveValue, double[] solution, int iterations) {
+			this(index, name, Status.OPTIMAL, objectiveValue, solution, iterations, null);
+		}
+
+		Result(int index, String name, Status status, int iterations) {
+			this(index, name, status, Double.NaN, null, iterations, null);
+		}
+
+		Result(int index, String name, Throwable error) {
+			this(index, name, Status.FAILED, Double.NaN, null, 0, error);
+		}
+
+		private Result(int index, String name, Status status, double objectiveValue, double[] solution,
+				int iterations, Throwable error) {
+			this.index = index;
+			this.name = name;
+			this.status = status;
+			this.objectiveValue = objectiveValue;
+			this.solution = solution;
+			this.iterations = iterations;
+			this.error = error;
+		}
+
+		/**
+		 * @return the position of the program in the input, starting with 0
+		 */
+		public int getIndex() {
+			return index;
+		}
+
+		/**
+		 * @return the file name of the program, <code>null</code> if it was not
+		 *         read from a file
+		 */
+		public String getName() {
+			return name;
+		}
+
+		public Status getStatus() {
+			return status;
+		}
+
+		/**
+		 * @return the optimal objective value in the sense of the original
+		 *         program, <code>NaN</code> unless the status is
+		 *         {@link Status#OPTIMAL}
+		 */
+		public double getObjectiveValue() {
+			return objectiveValue;
+		}
+
+		/**
+		 * @return the optimal values of the variables of the original program,
+		 *         <code>null</code> unless the status is {@link Status#OPTIMAL}
+		 */
+		public double[] getSolution() {
+			return solution;
+		}
+
+		public int getIterations() {
+			return iterations;
+		}
+
+		/**
+		 * @return the cause of a {@link Status#FAILED} result
+		 */
+		public Throwable getError() {
+			return error;
+		}
+
+		@Override
+		public String toString() {
+			String label = (name != null) ? name : "#" + index;
+			if (status == Status.OPTIMAL) {
+				return label + ": " + status + " " + objectiveValue;
+			} else if (status == Status.FAILED) {
+				return label + ": " + status + " " + error;
+			}
+			return label + ": " + status;
+		}
+	}
+
+	/**
+	 * Solves the files given as arguments with one solver thread per core and
+	 * prints a line per file.
+	 */
+	public static void main(String[] args) {
+		int cores = Runtime.getRuntime().availableProcessors();
+		ExecutorService readers = Executors.newCachedThreadPool();
+		ExecutorService solvers = Executors.newFixedThreadPool(cores);
+		try {
+			BatchSolver batch = new BatchSolver(readers, solvers, 4 * cores);
+			Iterator<Result> results = batch.solveFiles(Arrays.asList(args).iterator());
+			while (results.hasNext()) {
+				System.out.println(results.next());
+			}
+		} finally {
+			readers.shutdown();
+			solvers.shutdown();
+		}
+	}
+}
@@ -0,0 +1,440 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Random;
+
+import com.google.common.base.Preconditions;
+
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+
+/**
+ * Generates random linear programs of a given shape that are feasible and
+ * bounded.
+ *
+ * The generator first plants a solution <code>x*</code> within the bounds of
+ * the variables and then draws the constraints row by row. Every row is
+ * satisfied by <code>x*</code>, inequalities are either active or have a
+ * positive slack. The objective is built from planted duals that fulfil
+ * complementary slackness with <code>x*</code>, so <code>x*</code> is optimal
+ * and {@link #getOptimalValue()} tells the optimal value without solving.
+ *
+ * The shape is controlled by the density of the matrix, the mix of constraint
+ * senses and of bound types, and by the degeneracy, the fraction of active
+ * inequalities whose dual is zero. Coefficients are integers in
+ * <code>[-9, 9]</code>, so that rows with negative right hand sides occur.
+ *
+ * All random choices are derived from the seed, each row from its own stream.
+ * The same generator therefore produces the same program in memory and in
+ * every file format, and {@link #writeLP(String)} streams the rows without
+ * keeping the matrix in memory.
+ */
+public class LPGenerator {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private final int numRows;
+	private final int numColumns;
+	private final long seed;
+
+	private double density = 0.05;
+	private double degeneracy;
+	private double leqWeight = 1;
+	private double geqWeight;
+	private double eqWeight;
+	private double freeFraction;
+	private double boxedFraction;
+	private double negativeLowerFraction;
+	private ObjectiveGoal objGoal = ObjectiveGoal.MIN;
+	private boolean positive;
+
+	// Planted columns and the objective, computed by prepare()
+	private double[] lower;
+	private double[] upper;
+	private double[] solution;
+	private double[] obj;
+
+	// The last row drawn by row()
+	private final Random rowRandom = new Random();
+	private int rowLength;
+	private int[] rowColumns = new int[16];
+	private double[] rowValues = new double[16];
+	private Sense rowSense;
+	private double rowRhs;
+	private double rowDual;
+
+	/**
+	 * @param seed
+	 *          determines the program, equal seeds and settings give equal
+	 *          programs
+	 */
+	public LPGenerator(int numRows, int numColumns, long seed) {
+		Preconditions.checkArgument(numRows >= 0 && numColumns > 0, "invalid size %sx%s", numRows, numColumns);
+		this.numRows = numRows;
+		this.numColumns = numColumns;
+		this.seed = seed;
+	}
+
+	/**
+	 * Sets the probability of an entry of the matrix to be nonzero. The
+	 * default is 0.05.
+	 */
+	public void setDensity(double density) {
+		Preconditions.checkArgument(density > 0 && density <= 1, "density must be in (0, 1]");
+		this.density = density;
+		reset();
+	}
+
+	/**
+	 * Sets the probability of an active inequality to have a zero dual, such
+	 * that its slack may stay basic at zero. The default is 0.
+	 */
+	public void setDegeneracy(double degeneracy) {
+		Preconditions.checkArgument(degeneracy >= 0 && degeneracy <= 1, "degeneracy must be in [0, 1]");
+		this.degeneracy = degeneracy;
+		reset();
+	}
+
+	/**
+	 * Sets the relative frequencies of the constraint senses. By default all
+	 * constraints are <code>&lt;=</code>.
+	 */
+	public void setSenses(double leq, double geq, double eq) {
+		Preconditions.checkArgument(leq >= 0 && geq >= 0 && eq >= 0 && leq + geq + eq > 0, "invalid sense weights");
+		double sum = leq + geq + eq;
+		this.leqWeight = leq / sum;
+		this.geqWeight = geq / sum;
+		this.eqWeight = eq / sum;
+		reset();
+	}
+
+	/**
+	 * Sets the fractions of free variables, of variables with a finite lower
+	 * and upper bound, and of variables with a negative lower bound and no
+	 * upper bound. The remaining variables are non-negative. By default all
+	 * variables are non-negative.
+	 */
+	public void setBoundTypes(double free, double boxed, double negativeLower) {
+		Preconditions.checkArgument(free >= 0 && boxed >= 0 && negativeLower >= 0
+				&& free + boxed + negativeLower <= 1, "invalid bound type fractions");
+		this.freeFraction = free;
+		this.boxedFraction = boxed;
+		this.negativeLowerFraction = negativeLower;
+		reset();
+	}
+
+	/**
+	 * Sets whether the objective is minimized, the default, or maximized.
+	 */
+	public void setObjectiveGoal(ObjectiveGoal objGoal) {
+		this.objGoal = Preconditions.checkNotNull(objGoal);
+		reset();
+	}
+
+	/**
+	 * Restricts the coefficients to <code>[1, 9]</code>. Together with
+	 * non-negative variables and <code>&lt;=</code> constraints the right hand
+	 * sides are then non-negative and the slack basis is feasible.
+	 */
+	public void setPositiveCoefficients(boolean positive) {
+		this.positive = positive;
+		reset();
+	}
+
+	/**
+	 * @return the optimal objective value of the generated program
+	 */
+	public double getOptimalValue() {
+		prepare();
+		double value = 0;
+		for (int j = 0; j < numColumns; j++) {
+			value += obj[j] * solution[j];
+		}
+		return value;
+	}
+
+	/**
+	 * @return a copy of the planted optimal solution
+	 */
+	public double[] getOptimalSolution() {
+		prepare();
+		return solution.clone();
+	}
+
+	/**
+	 * Creates the program in memory.
+	 */
+	public LinearProgram generate() {
+		prepare();
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(numRows, numColumns,
+				(int) Math.min(Integer.MAX_VALUE - 8, (long) (1.1 * density * numRows * numColumns) + 16));
+		double[] rhs = new double[numRows];
+		Sense[] senses = new Sense[numRows];
+		String[] constraintNames = new String[numRows];
+		for (int i = 0; i < numRows; i++) {
+			row(i);
+			for (int k = 0; k < rowLength; k++) {
+				builder.add(i, rowColumns[k], rowValues[k]);
+			}
+			rhs[i] = rowRhs;
+			senses[i] = rowSense;
+			constraintNames[i] = constraintName(i);
+		}
+		String[] varName = new String[numColumns];
+		for (int j = 0; j < numColumns; j++) {
+			varName[j] = variableName(j);
+		}
+		return new LinearProgram(builder.build(), rhs, senses, lower.clone(), upper.clone(), obj.clone(), objGoal,
+				constraintNames, varName);
+	}
+
+	/**
+	 * Writes the program as an <code>.lp</code> file. The rows are drawn again
+	 * while writing, only the vectors of the variables are kept in memory.
+	 */
+	public void writeLP(String filename) throws IOException {
+		prepare();
+		Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16);
+		try {
+			out.write((objGoal == ObjectiveGoal.MAX) ? "Maximize\n obj:" : "Minimize\n obj:");
+			// List every variable, so that the reader numbers them in order
+			for (int j = 0; j < numColumns; j++) {
+				writeTerm(out, obj[j], j);
+				if (j % 8 == 7) {
+					out.write('\n');
+				}
+			}
+			out.write("\nSubject To\n");
+			for (int i = 0; i < numRows; i++) {
+				row(i);
+				out.write(' ');
+				out.write(constraintName(i));
+				out.write(':');
+				for (int k = 0; k < rowLength; k++) {
+					writeTerm(out, rowValues[k], rowColumns[k]);
+					if (k % 8 == 7) {
+						out.write('\n');
+					}
+				}
+				if (rowLength == 0) {
+					writeTerm(out, 0, 0);
+				}
+				out.write((rowSense == Sense.LEQ) ? " <= " : (rowSense == Sense.GEQ) ? " >= " : " = ");
+				out.write(format(rowRhs));
+				out.write('\n');
+			}
+			out.write("Bounds\n");
+			for (int j = 0; j < numColumns; j++) {
+				if (Double.isInfinite(lower[j])) {
+					out.write(" " + variableName(j) + " free\n");
+				} else if (!Double.isInfinite(upper[j])) {
+					out.write(" " + format(lower[j]) + " <= " + variableName(j) + " <= " + format(upper[j]) + "\n");
+				} else if (lower[j] != 0) {
+					out.write(" " + variableName(j) + " >= " + format(lower[j]) + "\n");
+				}
+			}
+			out.write("End\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the program as a free format MPS file. The columns are written in
+	 * order, so the matrix is generated in memory first.
+	 */
+	public void writeMPS(String filename) throws IOException {
+		LinearProgram program = generate();
+		SparseMatrix A = program.constraints;
+		Writer out = new BufferedWriter(new FileWriter(filename), 1 << 16);
+		try {
+			out.write("NAME gen" + seed + "\n");
+			if (objGoal == ObjectiveGoal.MAX) {
+				out.write("OBJSENSE\n    MAX\n");
+			}
+			out.write("ROWS\n N obj\n");
+			for (int i = 0; i < numRows; i++) {
+				char type = (program.senses[i] == Sense.LEQ) ? 'L' : (program.senses[i] == Sense.GEQ) ? 'G' : 'E';
+				out.write(" " + type + " " + constraintName(i) + "\n");
+			}
+			out.write("COLUMNS\n");
+			for (int j = 0; j < numColumns; j++) {
+				String name = variableName(j);
+				// The objective entry is written even if it is zero to declare the column
+				out.write(" " + name + " obj " + format(obj[j]) + "\n");
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					out.write(" " + name + " " + constraintName(A.rowIndex(k)) + " " + format(A.value(k)) + "\n");
+				}
+			}
+			out.write("RHS\n");
+			for (int i = 0; i < numRows; i++) {
+				if (program.rightHandSide[i] != 0) {
+					out.write(" RHS " + constraintName(i) + " " + format(program.rightHandSide[i]) + "\n");
+				}
+			}
+			out.write("BOUNDS\n");
+			for (int j = 0; j < numColumns; j++) {
+				String name = variableName(j);
+				if (Double.isInfinite(lower[j])) {
+					out.write(" FR BND " + name + "\n");
+					continue;
+				}
+				if (lower[j] != 0) {
+					out.write(" LO BND " + name + " " + format(lower[j]) + "\n");
+				}
+				if (!Double.isInfinite(upper[j])) {
+					out.write(" UP BND " + name + " " + format(upper[j]) + "\n");
+				}
+			}
+			out.write("ENDATA\n");
+		} finally {
+			out.close();
+		}
+	}
+
+	private void reset() {
+		obj = null;
+	}
+
+	/**
+	 * Plants the solution within the bounds of the variables and computes the
+	 * objective <code>c = A^T y + d</code> from the duals <code>y</code> of the
+	 * rows and reduced costs <code>d</code> that are zero for variables
+	 * strictly between their bounds and have the sign of the bound otherwise.
+	 */
+	private void prepare() {
+		if (obj != null) {
+			return;
+		}
+		Random random = new Random(seed);
+		lower = new double[numColumns];
+		upper = new double[numColumns];
+		solution = new double[numColumns];
+		double[] c = new double[numColumns];
+		for (int j = 0; j < numColumns; j++) {
+			double type = random.nextDouble();
+			if (type < freeFraction) {
+				lower[j] = Double.NEGATIVE_INFINITY;
+				upper[j] = Double.POSITIVE_INFINITY;
+				solution[j] = random.nextInt(11) - 5;
+			} else if (type < freeFraction + boxedFraction) {
+				lower[j] = -random.nextInt(5);
+				upper[j] = lower[j] + 1 + random.nextInt(9);
+				int position = random.nextInt(3);
+				if (position == 0) {
+					solution[j] = lower[j];
+					c[j] = random.nextInt(5);
+				} else if (position == 1) {
+					solution[j] = upper[j];
+					c[j] = -random.nextInt(5);
+				} else {
+					solution[j] = lower[j] + random.nextInt((int) (upper[j] - lower[j]) + 1);
+				}
+			} else {
+				upper[j] = Double.POSITIVE_INFINITY;
+				if (type < freeFraction + boxedFraction + negativeLowerFraction) {
+					lower[j] = -1 - random.nextInt(9);
+				}
+				if (random.nextBoolean()) {
+					solution[j] = lower[j];
+					c[j] = random.nextInt(5);
+				} else {
+					solution[j] = lower[j] + 1 + random.nextInt(5);
+				}
+			}
+		}
+
+		for (int i = 0; i < numRows; i++) {
+			row(i);
+			if (rowDual != 0) {
+				for (int k = 0; k < rowLength; k++) {
+					c[rowColumns[k]] += rowValues[k] * rowDual;
+				}
+			}
+		}
+		if (objGoal == ObjectiveGoal.MAX) {
+			for (int j = 0; j < numColumns; j++) {
+				c[j] = -c[j];
+			}
+		}
+		obj = c;
+	}
+
+	/**
+	 * Draws row <code>i</code> into the row fields. Needs the planted solution.
+	 */
+	private void row(int i) {
+		Random random = rowRandom;
+		random.setSeed(seed + GOLDEN_GAMMA * (i + 1));
+
+		// Skip geometrically distributed gaps instead of drawing every entry
+		double logSkip = Math.log(1 - density);
+		rowLength = 0;
+		double activity = 0;
+		for (int j = skip(random, logSkip); j < numColumns; j += 1 + skip(random, logSkip)) {
+			double value = 1 + random.nextInt(9);
+			if (!positive && random.nextBoolean()) {
+				value = -value;
+			}
+			if (rowLength == rowColumns.length) {
+				rowColumns = Arrays.copyOf(rowColumns, 2 * rowLength);
+				rowValues = Arrays.copyOf(rowValues, 2 * rowLength);
+			}
+			rowColumns[rowLength] = j;
+			rowValues[rowLength++] = value;
+			activity += value * solution[j];
+		}
+
+		double sense = random.nextDouble();
+		boolean active = random.nextBoolean();
+		double dual = (random.nextDouble() < degeneracy) ? 0 : 1 + random.nextInt(5);
+		if (sense < eqWeight) {
+			rowSense = Sense.EQ;
+			rowRhs = activity;
+			rowDual = random.nextBoolean() ? dual : -dual;
+		} else if (sense < eqWeight + geqWeight) {
+			rowSense = Sense.GEQ;
+			rowRhs = active ? activity : activity - 1 - random.nextInt(10);
+			rowDual = active ? dual : 0;
+		} else {
+			rowSense = Sense.LEQ;
+			rowRhs = active ? activity : activity + 1 + random.nextInt(10);
+			rowDual = active ? -dual : 0;
+		}
+	}
+
+	private static int skip(Random random, double logSkip) {
+		if (Double.isInfinite(logSkip)) {
+			return 0;
+		}
+		return (int) Math.min(Integer.MAX_VALUE / 2, Math.log(1 - random.nextDouble()) / logSkip);
+	}
+
+	private static String constraintName(int i) {
+		return "c" + i;
+	}
+
+	private static String variableName(int j) {
+		return "x" + j;
+	}
+
+	private static void writeTerm(Writer out, double value, int j) throws IOException {
+		out.write((value < 0) ? " - " : " + ");
+		out.write(format(Math.abs(value)));
+		out.write(' ');
+		out.write(variableName(j));
+	}
+
+	/**
+	 * @return integral values without a fraction, others in full precision
+	 */
+	private static String format(double value) {
+		if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+}
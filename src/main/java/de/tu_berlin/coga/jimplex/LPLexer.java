@@ -0,0 +1,412 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * Splits an <code>.lp</code> file into tokens.
+ *
+ * The input is read line by line through an internal byte buffer, comments
+ * (from <code>\</code> to the end of the line) are cut off. Within a line the
+ * lexer returns one token per call of {@link #next()}. Numbers are converted
+ * while scanning and names are only turned into strings on request, so
+ * scanning a line does not allocate. The file is expected to be ASCII, as
+ * names may only consist of ASCII characters anyway.
+ */
+class LPLexer {
+	static final int EOL = 0;
+	static final int NAME = 1;
+	static final int NUMBER = 2;
+	static final int PLUS = 3;
+	static final int MINUS = 4;
+	/** <code>&lt;</code>, <code>&lt;=</code> or <code>=&lt;</code> */
+	static final int LESS = 5;
+	/** <code>&gt;</code>, <code>&gt;=</code> or <code>=&gt;</code> */
+	static final int GREATER = 6;
+	static final int EQUALS = 7;
+	static final int COLON = 8;
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final boolean[] NAME_START = new boolean[128];
+	private static final boolean[] NAME_PART = new boolean[128];
+	/** Powers of ten that are exact doubles. */
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		for (char c = 'a'; c <= 'z'; c++) {
+			NAME_START[c] = true;
+			NAME_START[Character.toUpperCase(c)] = true;
+		}
+		for (char c : "!\"#$%&()/,;?`'{}|~_".toCharArray()) {
+			NAME_START[c] = true;
+		}
+		System.arraycopy(NAME_START, 0, NAME_PART, 0, 128);
+		for (char c = '0'; c <= '9'; c++) {
+			NAME_PART[c] = true;
+		}
+		NAME_PART['.'] = true;
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+		}
+	}
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int bufferPos;
+	private int bufferEnd;
+	/** number of bytes read from the input before the buffer */
+	private long consumed;
+
+	private byte[] line = new byte[256];
+	private int lineLength;
+	private int lineNo;
+	private long lineOffset;
+	private int pos;
+
+	private int tokenStart;
+	private int tokenEnd;
+	private double number;
+
+	LPLexer(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * Advances to the next line of the input.
+	 *
+	 * @return <code>false</code> at the end of the input
+	 */
+	boolean nextLine() throws IOException {
+		lineLength = 0;
+		pos = 0;
+		lineOffset = consumed + bufferPos;
+		boolean comment = false;
+		while (true) {
+			if (bufferPos == bufferEnd) {
+				consumed += bufferEnd;
+				bufferEnd = in.read(buffer);
+				bufferPos = 0;
+				if (bufferEnd <= 0) {
+					bufferEnd = 0;
+					if (lineLength == 0 && !comment) {
+						return false;
+					}
+					break;
+				}
+			}
+			byte c = buffer[bufferPos++];
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\\') {
+				comment = true;
+			}
+			if (!comment) {
+				if (lineLength == line.length) {
+					line = Arrays.copyOf(line, 2 * lineLength);
+				}
+				line[lineLength++] = c;
+			}
+		}
+		if (lineLength > 0 && line[lineLength - 1] == '\r') {
+			lineLength--;
+		}
+		lineNo++;
+		return true;
+	}
+
+	/**
+	 * @return the number of the current line, starting with 1
+	 */
+	int getLineNumber() {
+		return lineNo;
+	}
+
+	/**
+	 * @return the position of the current line in the input
+	 */
+	long getLineOffset() {
+		return lineOffset;
+	}
+
+	/**
+	 * @return the position in the input after the current line
+	 */
+	long getOffset() {
+		return consumed + bufferPos;
+	}
+
+	/**
+	 * @return the position of the first <code>c</code> in the rest of the line,
+	 *         or -1
+	 */
+	int indexOf(char c) {
+		for (int i = pos; i < lineLength; i++) {
+			if (line[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the text of the current line from <code>from</code> to
+	 *         <code>to</code> without surrounding white space
+	 */
+	String text(int from, int to) {
+		while (from < to && isSpace(line[from])) {
+			from++;
+		}
+		while (to > from && isSpace(line[to - 1])) {
+			to--;
+		}
+		return new String(line, from, to - from, ASCII);
+	}
+
+	/**
+	 * @return the rest of the line without surrounding white space
+	 */
+	String rest() {
+		return text(pos, lineLength);
+	}
+
+	/**
+	 * Continues scanning the line at the given position.
+	 */
+	void skipTo(int position) {
+		pos = position;
+	}
+
+	/**
+	 * @return whether the rest of the line is empty
+	 */
+	boolean isBlank() {
+		for (int i = pos; i < lineLength; i++) {
+			if (!isSpace(line[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return whether the rest of the line, without surrounding white space,
+	 *         equals <code>keyword</code> ignoring case
+	 */
+	boolean isKeyword(String keyword) {
+		int from = pos;
+		int to = lineLength;
+		while (from < to && isSpace(line[from])) {
+			from++;
+		}
+		while (to > from && isSpace(line[to - 1])) {
+			to--;
+		}
+		return regionEqualsIgnoreCase(from, to, keyword);
+	}
+
+	/**
+	 * @return whether <code>name</code> is a valid name of a variable or a
+	 *         constraint
+	 */
+	static boolean isName(String name) {
+		if (name.length() == 0 || name.charAt(0) >= 128 || !NAME_START[name.charAt(0)]) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c >= 128 || !NAME_PART[c]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Scans the next token of the current line.
+	 *
+	 * @return the type of the token, {@link #EOL} at the end of the line
+	 */
+	int next() throws ParseException {
+		while (pos < lineLength && isSpace(line[pos])) {
+			pos++;
+		}
+		tokenStart = pos;
+		if (pos == lineLength) {
+			tokenEnd = pos;
+			return EOL;
+		}
+		int c = line[pos++] & 0xff;
+		int type;
+		switch (c) {
+		case '+':
+			type = PLUS;
+			break;
+		case '-':
+			type = MINUS;
+			break;
+		case ':':
+			type = COLON;
+			break;
+		case '<':
+			if (pos < lineLength && line[pos] == '=') {
+				pos++;
+			}
+			type = LESS;
+			break;
+		case '>':
+			if (pos < lineLength && line[pos] == '=') {
+				pos++;
+			}
+			type = GREATER;
+			break;
+		case '=':
+			type = EQUALS;
+			if (pos < lineLength && line[pos] == '<') {
+				pos++;
+				type = LESS;
+			} else if (pos < lineLength && line[pos] == '>') {
+				pos++;
+				type = GREATER;
+			}
+			break;
+		default:
+			if (isDigit(c) || (c == '.' && pos < lineLength && isDigit(line[pos]))) {
+				pos--;
+				scanNumber();
+				type = NUMBER;
+			} else if (c < 128 && NAME_START[c]) {
+				while (pos < lineLength && line[pos] >= 0 && NAME_PART[line[pos]]) {
+					pos++;
+				}
+				type = NAME;
+			} else {
+				throw new ParseException("line " + lineNo + ": unexpected character '" + (char) c + "'", lineNo);
+			}
+		}
+		tokenEnd = pos;
+		return type;
+	}
+
+	/**
+	 * @return the value of the last {@link #NUMBER} token
+	 */
+	double number() {
+		return number;
+	}
+
+	/**
+	 * @return the text of the last token
+	 */
+	String token() {
+		return new String(line, tokenStart, tokenEnd - tokenStart, ASCII);
+	}
+
+	/**
+	 * @return whether the text of the last token equals <code>word</code>
+	 *         ignoring case
+	 */
+	boolean tokenIs(String word) {
+		return regionEqualsIgnoreCase(tokenStart, tokenEnd, word);
+	}
+
+	/**
+	 * @return the index of the last token in <code>symbols</code>, or -1 if it
+	 *         is not in the table
+	 */
+	int lookup(SymbolTable symbols) {
+		return symbols.indexOf(line, tokenStart, tokenEnd);
+	}
+
+	/**
+	 * Adds the last token to <code>symbols</code> unless it is already there.
+	 *
+	 * @return the index of the last token in <code>symbols</code>
+	 */
+	int intern(SymbolTable symbols) {
+		return symbols.add(line, tokenStart, tokenEnd);
+	}
+
+	/**
+	 * Scans digits with an optional decimal point and exponent. Numbers with
+	 * at most 15 significant digits and a small exponent are converted exactly
+	 * from a long mantissa, all others by {@link Double#parseDouble(String)}.
+	 */
+	private void scanNumber() {
+		int start = pos;
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		while (pos < lineLength && isDigit(line[pos])) {
+			if (digits < 18) {
+				mantissa = 10 * mantissa + (line[pos] - '0');
+				digits += (mantissa != 0) ? 1 : 0;
+			} else {
+				exponent++;
+			}
+			pos++;
+		}
+		if (pos < lineLength && line[pos] == '.') {
+			pos++;
+			while (pos < lineLength && isDigit(line[pos])) {
+				if (digits < 18) {
+					mantissa = 10 * mantissa + (line[pos] - '0');
+					digits += (mantissa != 0) ? 1 : 0;
+					exponent--;
+				}
+				pos++;
+			}
+		}
+		if (pos < lineLength && (line[pos] == 'e' || line[pos] == 'E')) {
+			int p = pos + 1;
+			int sign = 1;
+			if (p < lineLength && (line[p] == '+' || line[p] == '-')) {
+				sign = (line[p] == '-') ? -1 : 1;
+				p++;
+			}
+			if (p < lineLength && isDigit(line[p])) {
+				int e = 0;
+				while (p < lineLength && isDigit(line[p])) {
+					e = Math.min(10 * e + (line[p] - '0'), 100000);
+					p++;
+				}
+				exponent += sign * e;
+				pos = p;
+			}
+		}
+
+		if (digits <= 15 && exponent >= -22 && exponent <= 22) {
+			number = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+		} else {
+			number = Double.parseDouble(new String(line, start, pos - start, ASCII));
+		}
+	}
+
+	private boolean regionEqualsIgnoreCase(int from, int to, String word) {
+		if (to - from != word.length()) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			int c = line[from + i];
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			if (c != Character.toLowerCase(word.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isDigit(int c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static boolean isSpace(byte c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+	}
+}
@@ -1,19 +1,34 @@
 package de.tu_berlin.coga.jimplex;
 
 import java.io.*;
-import java.util.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.text.ParseException;
 
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+
 /**
  * A class to read linear programs from <code>.lp</code> files.
  * 
  * Initialise with the file name and invoke the method <code>readLP()</code> to
  * parse an lp from an <code>.lp</code> file. After successful reading all data
  * is held in various arrays which can be accessed via class methods. Debug
- * output can be switched on by an additional parameter to the constructor. <br/>
+ * output can be switched on by an additional parameter to the constructor, it
+ * is written to the log4j logger of this class at level INFO.
+ * Large files can be read in parallel with <code>readLP(ForkJoinPool)</code>.
+ * <br/>
  * Note that the parser cannot yet handle integer and binary variables!
  */
 public class LPReader {
+	private static final Logger LOG = Logger.getLogger(LPReader.class);
+
 	String filename;
 	boolean verbose;
 
@@ -36,13 +51,25 @@ public class LPReader {
 	/** represents maximising the objective */
 	public static final int SENSE_MAX = 2;
 
-	final String VARNAME_PATTERN = "[a-zA-Z\\!\"#\\$%&\\(\\)/,;\\?`'\\{\\}\\|~_][a-zA-Z0-9\\!\"#\\$%&\\(\\)/,\\.;\\?`'\\{\\}\\|~_]*";
-
-	Constraint objRaw;
-	HashMap<String, Constraint> constrHash;
-	HashMap<String, Variable> varHash;
-
-	double[][] constraint;
+	/** chunks of the constraints section are parsed in parallel from this size */
+	public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+
+	SymbolTable variables;
+	/** names of the constraints, <code>null</code> while parsing a chunk */
+	SymbolTable constraints;
+	int noOfConstr;
+	/** coefficients of the constraints as (row, column, value) triplets */
+	int noOfCoeff;
+	int[] coeffRow;
+	int[] coeffCol;
+	double[] coeffValue;
+	/** the constraint being parsed */
+	String curName;
+	int curSense;
+	double curRhs;
+	boolean constrComplete;
+
+	SparseMatrix constraint;
 	int[] sense;
 	double[] rhs;
 	String[] constrName;
@@ -52,50 +79,6 @@ public class LPReader {
 	double[] ubound;
 	String[] varName;
 
-	protected class Constraint {
-		public String name;
-		public int no;
-		public HashMap<String, Coefficient> coeff;
-		public int sense;
-		public double rhs;
-
-		public Constraint(String n, int i) {
-			name = n;
-			no = i;
-			coeff = new HashMap<String, Coefficient>();
-			sense = SENSE_UNDEF;
-			rhs = 0;
-			logprint("new Constraint '" + name + "' (no " + i + ")");
-		}
-	}
-
-	protected class Variable {
-		public String name;
-		public int no;
-		public double lb;
-		public double ub;
-
-		public Variable(String n, int i) {
-			name = n;
-			no = i;
-			lb = 0;
-			ub = Double.POSITIVE_INFINITY;
-			logprint("new Variable '" + name + "' (no " + i + ")");
-		}
-	}
-
-	protected class Coefficient {
-		public int varNo;
-		public int constrNo;
-		public double value;
-
-		public Coefficient(int var, int constr, double val) {
-			varNo = var;
-			constrNo = constr;
-			value = val;
-		}
-	}
-
 	/**
 	 * Initialises the parser with no log output.
 	 * 
@@ -112,13 +95,14 @@ public class LPReader {
 	 * @param fname
 	 *          file name to read from
 	 * @param verb
-	 *          switch log output
+	 *          switch log output, has no effect if INFO is disabled for the
+	 *          logger
 	 */
 	public LPReader(String fname, boolean verb) {
 		filename = fname;
-		verbose = verb;
+		verbose = verb && LOG.isInfoEnabled();
 
-		constraint = new double[0][0];
+		constraint = new SparseMatrix.Builder(0, 0).build();
 		sense = new int[0];
 		rhs = new double[0];
 		constrName = new String[0];
@@ -150,10 +134,10 @@ public class LPReader {
 	/**
 	 * Tells the constraints coefficient matrix.
 	 * 
-	 * @return the lhs coefficients of all constraints as an array of size
+	 * @return the lhs coefficients of all constraints as a sparse matrix of size
 	 *         <code>noOfConstraints()</code> &times; <code>noOfVariables()</code>
 	 */
-	public double[][] constraintsMatrix() {
+	public SparseMatrix constraintsMatrix() {
 		return constraint;
 	}
 
@@ -241,56 +225,305 @@ public class LPReader {
 	 * initialised.
 	 */
 	public void readLP() throws ParseException, FileNotFoundException, IOException {
-		BufferedReader in = new BufferedReader(new FileReader(filename));
+		InputStream in = new FileInputStream(filename);
+		try {
+			readLP(new LPLexer(in));
+		} finally {
+			in.close();
+		}
+		if (verbose)
+			logprint("====================================================\nwriting to arrays");
+		toArrays();
+	}
+
+	/**
+	 * Reads the linear program like {@link #readLP(ForkJoinPool, int)} in
+	 * chunks of {@link #DEFAULT_CHUNK_SIZE} bytes.
+	 */
+	public void readLP(ForkJoinPool pool) throws ParseException, IOException {
+		readLP(pool, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Reads the linear program like {@link #readLP()}, but parses the
+	 * constraints of large files in parallel.
+	 * 
+	 * The file is memory-mapped and the objective is parsed first. The
+	 * constraints section is then split into chunks of about
+	 * <code>chunkSize</code> bytes, each starting after a line that completes a
+	 * constraint, and the chunks are parsed on <code>pool</code> into symbol
+	 * tables of their own. These are merged in the order of the file, so
+	 * variables and constraints are numbered as by the sequential reader.
+	 * Finally the bounds are parsed. If a chunk contains an error, the file is
+	 * read again sequentially to report it with the right line.
+	 */
+	public void readLP(ForkJoinPool pool, int chunkSize) throws ParseException, IOException {
+		Preconditions.checkArgument(chunkSize > 0);
+		try {
+			readLP(new MappedFile(filename), pool, chunkSize);
+		} catch (ParseException e) {
+			logprint("parallel parsing failed, reading sequentially");
+			readLP();
+			return;
+		}
+		if (verbose)
+			logprint("====================================================\nwriting to arrays");
+		toArrays();
+	}
 
-		constrHash = new HashMap<String, Constraint>();
-		varHash = new HashMap<String, Variable>();
+	private void readLP(final MappedFile file, ForkJoinPool pool, int chunkSize) throws ParseException, IOException {
+		init(new SymbolTable());
+		LPLexer lexer = new LPLexer(file.open(0, file.size()));
 		logprint("switching to status SEC_START");
-		int status = SEC_START;
-		Constraint curConstr = null;
-		int constrNo = 0;
-		int lineNo = 0;
-		boolean constrComplete = true;
-		while ((in.ready()) && (status != SEC_END)) {
-			String line = in.readLine();
-			++lineNo;
-			logprint("----------------------------------------------------\n" + "line " + lineNo + ": " + line + "\n"
-					+ "----------------------------------------------------");
-			int commentStart = line.indexOf('\\');
-			if (commentStart != -1)
-				line = line.substring(0, commentStart);
-			line = line.trim();
-
-			int colonIndex = line.indexOf(':');
+		int status = parse(lexer, SEC_START, SEC_CONSTRAINTS);
+		long start = lexer.getOffset();
+		if ((status != SEC_CONSTRAINTS) || (file.size() - start <= chunkSize)) {
+			parse(lexer, status, SEC_END);
+			return;
+		}
+
+		int noOfChunks = (int) ((file.size() - start + chunkSize - 1) / chunkSize);
+		final long[] chunkStart = new long[noOfChunks + 1];
+		chunkStart[0] = start;
+		chunkStart[noOfChunks] = file.size();
+		List<Callable<Long>> splits = new ArrayList<Callable<Long>>();
+		for (int k = 1; k < noOfChunks; k++) {
+			final long pos = start + (long) k * chunkSize;
+			splits.add(new Callable<Long>() {
+				@Override
+				public Long call() throws IOException {
+					return chunkStart(file, pos);
+				}
+			});
+		}
+		List<Future<Long>> splitResults = pool.invokeAll(splits);
+		for (int k = 1; k < noOfChunks; k++)
+			chunkStart[k] = get(splitResults.get(k - 1));
+
+		if (verbose)
+			logprint("parsing " + noOfChunks + " chunks of constraints");
+		final LPReader[] chunks = new LPReader[noOfChunks];
+		List<Callable<Long>> parsers = new ArrayList<Callable<Long>>();
+		for (int k = 0; k < noOfChunks; k++) {
+			final int chunk = k;
+			chunks[k] = new LPReader(filename);
+			parsers.add(new Callable<Long>() {
+				@Override
+				public Long call() throws ParseException, IOException {
+					return chunks[chunk].parseChunk(file, chunkStart[chunk], chunkStart[chunk + 1]);
+				}
+			});
+		}
+		List<Future<Long>> parserResults = pool.invokeAll(parsers);
+
+		// Number variables and constraints in the order of the file, chunks after
+		// the end of the constraints section are dropped
+		long end = -1;
+		final int[][] varMap = new int[noOfChunks][];
+		final int[] rowOffset = new int[noOfChunks];
+		final int[] coeffOffset = new int[noOfChunks + 1];
+		int noOfMerged = 0;
+		while ((noOfMerged < noOfChunks) && (end < 0)) {
+			int k = noOfMerged++;
+			end = get(parserResults.get(k));
+			LPReader chunk = chunks[k];
+			varMap[k] = new int[chunk.variables.size()];
+			for (int j = 0; j < varMap[k].length; j++)
+				varMap[k][j] = variable(chunk.variables.name(j));
+			rowOffset[k] = noOfConstr;
+			for (int i = 0; i < chunk.noOfConstr; i++)
+				addConstraint(addConstraintName(chunk.constrName[i], 0), chunk.sense[i], chunk.rhs[i]);
+			coeffOffset[k + 1] = coeffOffset[k] + chunk.noOfCoeff;
+		}
+
+		growCoefficients(coeffOffset[noOfMerged]);
+		List<Callable<Void>> copies = new ArrayList<Callable<Void>>();
+		for (int k = 0; k < noOfMerged; k++) {
+			final int chunk = k;
+			copies.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					chunks[chunk].copyCoefficients(LPReader.this, coeffOffset[chunk], rowOffset[chunk], varMap[chunk]);
+					return null;
+				}
+			});
+		}
+		for (Future<Void> copy : pool.invokeAll(copies))
+			get(copy);
+		noOfCoeff = coeffOffset[noOfMerged];
+
+		if (end >= 0) {
+			newConstraint();
+			parse(new LPLexer(file.open(end, file.size())), SEC_CONSTRAINTS, SEC_END);
+		}
+	}
+
+	/**
+	 * Parses the constraints between positions <code>from</code> and
+	 * <code>to</code> of <code>file</code>. Constraints without a name are left
+	 * unnamed, as their number is not known yet.
+	 * 
+	 * @return the position of the line that ends the constraints section, or -1
+	 *         if the chunk does not contain it
+	 */
+	private long parseChunk(MappedFile file, long from, long to) throws ParseException, IOException {
+		init(null);
+		newConstraint();
+		LPLexer lexer = new LPLexer(file.open(from, to));
+		if (parse(lexer, SEC_CONSTRAINTS, SEC_BOUNDS) != SEC_CONSTRAINTS)
+			return from + lexer.getLineOffset();
+		// Only the last chunk may end with an incomplete constraint, as the
+		// sequential reader drops it at the end of the file
+		if (!constrComplete && (to < file.size()))
+			throw new ParseException("incomplete constraint at the end of a chunk", 0);
+		dropIncompleteConstraint();
+		return -1;
+	}
+
+	/**
+	 * Copies the coefficients of this chunk into <code>target</code> from
+	 * position <code>offset</code> on, with the row numbers shifted by
+	 * <code>rowOffset</code> and the columns numbered by <code>varMap</code>.
+	 */
+	private void copyCoefficients(LPReader target, int offset, int rowOffset, int[] varMap) {
+		for (int k = 0; k < noOfCoeff; k++) {
+			target.coeffRow[offset + k] = rowOffset + coeffRow[k];
+			target.coeffCol[offset + k] = varMap[coeffCol[k]];
+		}
+		System.arraycopy(coeffValue, 0, target.coeffValue, offset, noOfCoeff);
+	}
+
+	/**
+	 * Finds where a chunk of constraints can start: after the first line
+	 * starting behind <code>pos</code> that completes a constraint, or at a line
+	 * that ends the constraints section. Lines that cannot be scanned are also
+	 * chunk starts, the error is then reported by the chunk.
+	 */
+	private static long chunkStart(MappedFile file, long pos) throws IOException {
+		LPLexer lexer = new LPLexer(file.open(pos, file.size()));
+		if (file.get(pos - 1) != '\n')
+			lexer.nextLine();
+		while (lexer.nextLine()) {
+			int colonIndex = lexer.indexOf(':');
+			if (colonIndex >= 0)
+				lexer.skipTo(colonIndex + 1);
+			if (lexer.isKeyword("bounds") || lexer.isKeyword("bound") || lexer.isKeyword("end"))
+				return pos + lexer.getLineOffset();
+			try {
+				if (completesConstraint(lexer))
+					return pos + lexer.getOffset();
+			} catch (ParseException e) {
+				return pos + lexer.getLineOffset();
+			}
+		}
+		return file.size();
+	}
+
+	/**
+	 * @return whether the rest of the line contains a sense followed by a rhs,
+	 *         so that any constraint is complete after it
+	 */
+	private static boolean completesConstraint(LPLexer lexer) throws ParseException {
+		boolean sense = false;
+		boolean rhs = false;
+		for (int token = lexer.next(); token != LPLexer.EOL; token = lexer.next()) {
+			if ((token == LPLexer.LESS) || (token == LPLexer.GREATER) || (token == LPLexer.EQUALS))
+				sense = true;
+			rhs = sense && ((token == LPLexer.NUMBER) || ((token == LPLexer.NAME) && isInfinity(lexer)));
+		}
+		return rhs;
+	}
+
+	private static <T> T get(Future<T> future) throws ParseException, IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("interrupted while parsing");
+		} catch (ExecutionException e) {
+			// The pool wraps checked exceptions of the tasks
+			for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+				if (t instanceof ParseException)
+					throw (ParseException) t;
+				if (t instanceof IOException)
+					throw (IOException) t;
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			if (cause instanceof Error)
+				throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	private void readLP(LPLexer lexer) throws ParseException, IOException {
+		init(new SymbolTable());
+		logprint("switching to status SEC_START");
+		parse(lexer, SEC_START, SEC_END);
+	}
+
+	private void init(SymbolTable constraintNames) {
+		variables = new SymbolTable();
+		constraints = constraintNames;
+		noOfConstr = 0;
+		noOfCoeff = 0;
+		coeffRow = new int[1024];
+		coeffCol = new int[1024];
+		coeffValue = new double[1024];
+		sense = new int[64];
+		rhs = new double[64];
+		constrName = new String[64];
+		obj = new double[64];
+		objsense = SENSE_UNDEF;
+		lbound = new double[64];
+		ubound = new double[64];
+		constrComplete = true;
+	}
+
+	/**
+	 * Parses lines starting in section <code>status</code> until the end of the
+	 * input or section <code>until</code> or {@link #SEC_END} is reached.
+	 *
+	 * @return the section reached
+	 */
+	private int parse(LPLexer lexer, int status, int until) throws ParseException, IOException {
+		while ((status != SEC_END) && (status != until) && lexer.nextLine()) {
+			int lineNo = lexer.getLineNumber();
+			if (verbose)
+				logprint("----------------------------------------------------\n" + "line " + lineNo + ": "
+						+ lexer.rest() + "\n" + "----------------------------------------------------");
+
+			int colonIndex = lexer.indexOf(':');
 			if (colonIndex >= 0) {
 				logprint("parsing name");
-				String namePart = line.substring(0, colonIndex).trim();
+				String namePart = lexer.text(0, colonIndex);
 				switch (status) {
 				case SEC_START:
 					throw new ParseException("line " + lineNo + ": unexpected ':' before objective section", lineNo);
 				case SEC_OBJECTIVE: {
-					if (!namePart.matches(VARNAME_PATTERN))
+					if (!LPLexer.isName(namePart))
 						throw new ParseException("line " + lineNo + ": invalid objective name '" + namePart + "'", lineNo);
-					logprint("setting objective name '" + namePart + "'");
-					curConstr.name = namePart;
+					if (verbose)
+						logprint("setting objective name '" + namePart + "'");
 				}
 					break;
 				case SEC_CONSTRAINTS: {
-					if (!namePart.matches(VARNAME_PATTERN))
+					if (!LPLexer.isName(namePart))
 						throw new ParseException("line " + lineNo + ": invalid constraint name '" + namePart + "'", lineNo);
-					logprint("setting constraint name '" + namePart + "'");
-					curConstr.name = namePart;
+					if (verbose)
+						logprint("setting constraint name '" + namePart + "'");
+					curName = namePart;
 				}
 					break;
 				case SEC_BOUNDS:
 					throw new ParseException("line " + lineNo + ": unexpected ':' in bounds section", lineNo);
 				}
-				line = line.substring(colonIndex + 1).trim();
+				lexer.skipTo(colonIndex + 1);
 			}
 
-			if (line.length() > 0) {
-				String keyword = line.toLowerCase();
-				if (keyword.equals("end")) {
+			if (!lexer.isBlank()) {
+				if (lexer.isKeyword("end")) {
 					if (constrComplete) {
 						logprint("switching to status SEC_END");
 						status = SEC_END;
@@ -299,333 +532,364 @@ public class LPReader {
 				} else {
 					switch (status) {
 					case SEC_START: {
-						curConstr = new Constraint("obj", 0);
-						if (keyword.equals("max") || keyword.equals("maximize") || keyword.equals("maximise")) {
+						if (lexer.isKeyword("max") || lexer.isKeyword("maximize") || lexer.isKeyword("maximise")) {
 							logprint("recognised a maximising problem");
-							curConstr.sense = SENSE_MAX;
-						} else if (keyword.equals("min") || keyword.equals("minimize") || keyword.equals("minimise")) {
+							objsense = SENSE_MAX;
+						} else if (lexer.isKeyword("min") || lexer.isKeyword("minimize") || lexer.isKeyword("minimise")) {
 							logprint("recognised a minimising problem");
-							curConstr.sense = SENSE_MIN;
+							objsense = SENSE_MIN;
 						} else
-							throw new ParseException("line " + lineNo + ": unrecognised keyword '" + keyword + "'", lineNo);
+							throw new ParseException("line " + lineNo + ": unrecognised keyword '" + lexer.rest().toLowerCase()
+									+ "'", lineNo);
 						logprint("switching to status SEC_OBJECTIVE");
 						status = SEC_OBJECTIVE;
 					}
 						break;
 					case SEC_OBJECTIVE: {
-						if (keyword.equals("subject to") || keyword.equals("such that") || keyword.equals("s.t.")
-								|| keyword.equals("st.") || keyword.equals("st")) {
-							logprint("saving objective");
-							objRaw = curConstr;
+						if (lexer.isKeyword("subject to") || lexer.isKeyword("such that") || lexer.isKeyword("s.t.")
+								|| lexer.isKeyword("st.") || lexer.isKeyword("st")) {
 							logprint("switching to status SEC_CONSTRAINTS");
 							status = SEC_CONSTRAINTS;
-							logprint("initialising new Constraint");
-							curConstr = new Constraint("c" + constrNo, constrNo);
+							newConstraint();
 						} else {
-							logprint("parsing linear combination '" + line + "'");
-							parseLinComb(line, curConstr, lineNo);
+							logprint("parsing linear combination");
+							parseLinComb(lexer, -1, lineNo);
 						}
 					}
 						break;
 					case SEC_CONSTRAINTS: {
-						if (keyword.equals("bounds") || keyword.equals("bound")) {
+						if (lexer.isKeyword("bounds") || lexer.isKeyword("bound")) {
 							if (constrComplete) {
 								logprint("switching to status SEC_BOUNDS");
 								status = SEC_BOUNDS;
 							} else
 								throw new ParseException("line " + lineNo + ": incomplete constraint", lineNo);
 						} else {
-							logprint("parsing linear combination '" + line + "'");
-							constrComplete = parseLinComb(line, curConstr, lineNo);
+							logprint("parsing linear combination");
+							constrComplete = parseLinComb(lexer, noOfConstr, lineNo);
 							if (constrComplete) {
 								logprint("constraint is complete");
-								if (constrHash.containsKey(curConstr.name)) {
-									String addInfo = "'";
-									if (curConstr.name.charAt(0) == 'c')
-										addInfo += " (maybe an earlier constraint got that name automatically)";
-									throw new ParseException("line " + lineNo + ": ambiguous constraint name '" + curConstr.name
-											+ addInfo, lineNo);
-								}
-								logprint("saving constraint '" + curConstr.name + "'");
-								constrHash.put(curConstr.name, curConstr);
-								++constrNo;
-								logprint("initialising new Constraint");
-								curConstr = new Constraint("c" + constrNo, constrNo);
+								saveConstraint(lineNo);
+								newConstraint();
 							}
 						}
 					}
 						break;
 					case SEC_BOUNDS: {
 						logprint("parsing bounds");
-						parseBound(line, lineNo);
+						parseBound(lexer, lineNo);
 					}
 						break;
 					}
 				}
 			}
 		}
-		logprint("====================================================\nwriting to arrays");
-		hash2arr();
+		return status;
 	}
 
-	private void parseBound(String expr, int lineNo) throws ParseException {
-		String[] exprsplit = expr.split("\\<\\=");
-		switch (exprsplit.length) {
-		case 1: {
-			exprsplit = expr.split("=");
-			if (exprsplit.length > 1) {
-				logprint("..equality bound");
-				String varname = exprsplit[0].trim();
-				Variable var = varHash.get(varname);
-				if (var == null)
-					throw new ParseException("line " + lineNo + ": unknown variable '" + varname + "'", lineNo);
-				String boundStr = exprsplit[1].trim();
-				double bound = 0;
-				try {
-					bound = Double.parseDouble(boundStr);
-				} catch (NumberFormatException ex) {
-					throw new ParseException("line " + lineNo + ": '" + boundStr + "' is not a valid number", lineNo);
-				}
-				var.lb = bound;
-				var.ub = bound;
-			} else {
+	private void newConstraint() {
+		logprint("initialising new Constraint");
+		curName = null;
+		curSense = SENSE_UNDEF;
+		curRhs = 0;
+	}
+
+	private void saveConstraint(int lineNo) throws ParseException {
+		String name = curName;
+		if (constraints != null)
+			name = addConstraintName(name, lineNo);
+		addConstraint(name, curSense, curRhs);
+	}
+
+	/**
+	 * Names the next constraint <code>name</code>, or automatically if
+	 * <code>name</code> is <code>null</code>.
+	 *
+	 * @return the name of the constraint
+	 */
+	private String addConstraintName(String name, int lineNo) throws ParseException {
+		if (name == null)
+			name = "c" + noOfConstr;
+		if (constraints.indexOf(name) >= 0) {
+			String addInfo = "'";
+			if (name.charAt(0) == 'c')
+				addInfo += " (maybe an earlier constraint got that name automatically)";
+			throw new ParseException("line " + lineNo + ": ambiguous constraint name '" + name + addInfo, lineNo);
+		}
+		constraints.add(name);
+		return name;
+	}
+
+	private void addConstraint(String name, int sen, double value) {
+		int i = noOfConstr;
+		if (verbose)
+			logprint("saving constraint '" + name + "' (no " + i + ")");
+		if (i == sense.length) {
+			sense = Arrays.copyOf(sense, 2 * i);
+			rhs = Arrays.copyOf(rhs, 2 * i);
+			constrName = Arrays.copyOf(constrName, 2 * i);
+		}
+		sense[i] = sen;
+		rhs[i] = value;
+		constrName[i] = name;
+		noOfConstr++;
+	}
+
+	/**
+	 * Parses a bound of one of the forms <code>x free</code>, <code>x = v</code>,
+	 * <code>x &lt;= u</code>, <code>l &lt;= x</code> and <code>l &lt;= x &lt;=
+	 * u</code>, or the same with <code>&gt;=</code>.
+	 */
+	private void parseBound(LPLexer lexer, int lineNo) throws ParseException {
+		int token = lexer.next();
+		if (token == LPLexer.NAME && !isInfinity(lexer)) {
+			int j = lexer.lookup(variables);
+			if (j < 0)
+				throw new ParseException("line " + lineNo + ": unknown variable '" + lexer.token() + "'", lineNo);
+			token = lexer.next();
+			switch (token) {
+			case LPLexer.NAME:
 				logprint("..free variable");
-				exprsplit = expr.split("\\s");
-				if (exprsplit.length < 2)
-					throw new ParseException("line " + lineNo + ": illegal free variable expression", lineNo);
-				if (!exprsplit[1].trim().toLowerCase().equals("free"))
+				if (!lexer.tokenIs("free"))
 					throw new ParseException("line " + lineNo + ": expected 'free'", lineNo);
-				String varname = exprsplit[0].trim();
-				Variable var = varHash.get(varname);
-				if (var == null)
-					throw new ParseException("line " + lineNo + ": unknown variable '" + varname + "'", lineNo);
-				var.lb = Double.NEGATIVE_INFINITY;
-				var.ub = Double.POSITIVE_INFINITY;
-			}
-		}
-			break;
-		case 2: {
-			logprint("..one-sided bound");
-			String varname = exprsplit[0].trim();
-			String boundStr = exprsplit[1].trim();
-			int sense = SENSE_LEQ;
-			Variable var = varHash.get(varname);
-			if (var == null) {
-				varname = exprsplit[1].trim();
-				boundStr = exprsplit[0].trim();
-				sense = SENSE_GEQ;
-				var = varHash.get(varname);
-				if (var == null)
-					throw new ParseException("line " + lineNo + ": neither '" + boundStr + "' nor '" + varname
-							+ "' is a known variable", lineNo);
-			}
-			double bound = 0;
-			try {
-				bound = Double.parseDouble(boundStr);
-			} catch (NumberFormatException ex) {
-				throw new ParseException("line " + lineNo + ": '" + boundStr + "' is not a valid bound", lineNo);
-			}
-			switch (sense) {
-			case SENSE_LEQ:
+				lbound[j] = Double.NEGATIVE_INFINITY;
+				ubound[j] = Double.POSITIVE_INFINITY;
+				break;
+			case LPLexer.EQUALS:
+				logprint("..equality bound");
+				lbound[j] = parseBoundValue(lexer, lineNo);
+				ubound[j] = lbound[j];
+				break;
+			case LPLexer.LESS:
 				logprint("..upper");
-				var.ub = bound;
+				ubound[j] = parseBoundValue(lexer, lineNo);
 				break;
-			case SENSE_GEQ:
+			case LPLexer.GREATER:
 				logprint("..lower");
-				var.lb = bound;
+				lbound[j] = parseBoundValue(lexer, lineNo);
 				break;
+			default:
+				throw new ParseException("line " + lineNo + ": illegal free variable expression", lineNo);
 			}
-		}
-			break;
-		case 3: {
-			logprint("..two-sided bound");
-			String varname = exprsplit[1].trim();
-			Variable var = varHash.get(varname);
-			if (var == null)
-				throw new ParseException("line " + lineNo + ": unknown variable '" + varname + "'", lineNo);
-			double lower = 0;
-			String lowerStr = exprsplit[0].trim().toLowerCase();
-			if (lowerStr.equals("-infinity") || lowerStr.equals("-inf"))
-				lower = Double.NEGATIVE_INFINITY;
-			else {
-				try {
-					lower = Double.parseDouble(lowerStr);
-				} catch (NumberFormatException ex) {
-					throw new ParseException("line " + lineNo + ": '" + lowerStr + "' is not a valid bound", lineNo);
-				}
-			}
-			double upper = 0;
-			String upperStr = exprsplit[2].trim().toLowerCase();
-			if (upperStr.equals("infinity") || upperStr.equals("inf") || upperStr.equals("+infinity")
-					|| upperStr.equals("+inf"))
-				upper = Double.POSITIVE_INFINITY;
-			else {
-				try {
-					upper = Double.parseDouble(exprsplit[2].trim());
-				} catch (NumberFormatException ex) {
-					throw new ParseException("line " + lineNo + ": '" + exprsplit[2].trim() + "' is not a valid bound", lineNo);
-				}
+		} else {
+			double first = parseBoundValue(lexer, token, lineNo);
+			int sense = lexer.next();
+			if ((sense != LPLexer.LESS) && (sense != LPLexer.GREATER))
+				throw new ParseException("line " + lineNo + ": expected '<=' or '>=' after bound", lineNo);
+			if (lexer.next() != LPLexer.NAME)
+				throw new ParseException("line " + lineNo + ": expected a variable after bound", lineNo);
+			int j = lexer.lookup(variables);
+			if (j < 0)
+				throw new ParseException("line " + lineNo + ": unknown variable '" + lexer.token() + "'", lineNo);
+			if (sense == LPLexer.LESS)
+				lbound[j] = first;
+			else
+				ubound[j] = first;
+			token = lexer.next();
+			if (token != LPLexer.EOL) {
+				logprint("..two-sided bound");
+				if (token != sense)
+					throw new ParseException("line " + lineNo + ": inconsistent bound senses", lineNo);
+				if (sense == LPLexer.LESS)
+					ubound[j] = parseBoundValue(lexer, lineNo);
+				else
+					lbound[j] = parseBoundValue(lexer, lineNo);
 			}
-			var.lb = lower;
-			var.ub = upper;
 		}
+		if (lexer.next() != LPLexer.EOL)
+			throw new ParseException("line " + lineNo + ": unexpected '" + lexer.token() + "' after bound", lineNo);
+	}
+
+	private double parseBoundValue(LPLexer lexer, int lineNo) throws ParseException {
+		return parseBoundValue(lexer, lexer.next(), lineNo);
+	}
+
+	/**
+	 * Parses a signed number or infinity starting with the given token.
+	 */
+	private double parseBoundValue(LPLexer lexer, int token, int lineNo) throws ParseException {
+		double sign = 1;
+		if ((token == LPLexer.PLUS) || (token == LPLexer.MINUS)) {
+			sign = (token == LPLexer.MINUS) ? -1 : 1;
+			token = lexer.next();
 		}
+		if (token == LPLexer.NUMBER)
+			return sign * lexer.number();
+		if ((token == LPLexer.NAME) && isInfinity(lexer))
+			return sign * Double.POSITIVE_INFINITY;
+		throw new ParseException("line " + lineNo + ": '" + lexer.token() + "' is not a valid bound", lineNo);
 	}
 
-	private boolean parseLinComb(String expr, Constraint target, int lineNo) throws ParseException {
-		StringTokenizer exprtok = new StringTokenizer(expr, "+->=<", true);
-		boolean constrComplete = false;
+	private static boolean isInfinity(LPLexer lexer) {
+		return lexer.tokenIs("inf") || lexer.tokenIs("infinity");
+	}
+
+	/**
+	 * Parses a line of a linear combination, possibly followed by a sense and a
+	 * rhs, into row <code>row</code> of the constraints or into the objective
+	 * if <code>row</code> is negative.
+	 *
+	 * @return whether the rhs has been read
+	 */
+	private boolean parseLinComb(LPLexer lexer, int row, int lineNo) throws ParseException {
+		boolean complete = false;
 		int currSign = 1;
 		boolean inequflag = false;
-		while (exprtok.hasMoreTokens()) {
-			String nextToken = exprtok.nextToken().trim();
-			if (nextToken.length() > 0) {
-				if (nextToken.equals("+")) {
-					logprint("..sign is +");
-					currSign = 1;
-				} else if (nextToken.equals("-")) {
-					logprint("..sign is -");
-					currSign = -1;
-				} else if (nextToken.equals(">")) {
-					logprint("..sense is >=");
-					target.sense = SENSE_GEQ;
-					inequflag = true;
-					currSign = 1;
-				} else if (nextToken.equals("<")) {
-					logprint("..sense is <=");
-					target.sense = SENSE_LEQ;
-					inequflag = true;
-					currSign = 1;
-				} else if (nextToken.equals("=")) {
-					if (target.sense == SENSE_UNDEF) {
-						logprint("..sense is =");
-						target.sense = SENSE_EQ;
-					} else if (!inequflag)
-						throw new ParseException("line " + lineNo + ": illegal '='", lineNo);
-					currSign = 1;
+		for (int token = lexer.next(); token != LPLexer.EOL; token = lexer.next()) {
+			if ((row < 0) && ((token == LPLexer.GREATER) || (token == LPLexer.LESS) || (token == LPLexer.EQUALS)))
+				throw new ParseException("line " + lineNo + ": unexpected '" + lexer.token() + "' in objective", lineNo);
+			switch (token) {
+			case LPLexer.PLUS:
+				logprint("..sign is +");
+				currSign = 1;
+				break;
+			case LPLexer.MINUS:
+				logprint("..sign is -");
+				currSign = -1;
+				break;
+			case LPLexer.GREATER:
+				logprint("..sense is >=");
+				curSense = SENSE_GEQ;
+				inequflag = true;
+				currSign = 1;
+				break;
+			case LPLexer.LESS:
+				logprint("..sense is <=");
+				curSense = SENSE_LEQ;
+				inequflag = true;
+				currSign = 1;
+				break;
+			case LPLexer.EQUALS:
+				if (curSense == SENSE_UNDEF) {
+					logprint("..sense is =");
+					curSense = SENSE_EQ;
+				} else if (!inequflag)
+					throw new ParseException("line " + lineNo + ": illegal '='", lineNo);
+				currSign = 1;
+				break;
+			case LPLexer.COLON:
+				throw new ParseException("line " + lineNo + ": unexpected ':'", lineNo);
+			default:
+				if (currSign == 0)
+					throw new ParseException("line " + lineNo + ": missing sign", lineNo);
+				if ((row >= 0) && ((curSense == SENSE_GEQ) || (curSense == SENSE_EQ) || (curSense == SENSE_LEQ))) {
+					logprint("..parsing rhs");
+					if (token == LPLexer.NUMBER)
+						curRhs = currSign * lexer.number();
+					else if (isInfinity(lexer))
+						curRhs = currSign * Double.POSITIVE_INFINITY;
+					else
+						throw new ParseException("line " + lineNo + ": '" + lexer.token() + "' is not a valid rhs entry", lineNo);
+					complete = true;
 				} else {
-					if (currSign == 0)
-						throw new ParseException("line " + lineNo + ": missing sign", lineNo);
-					if ((target.sense == SENSE_GEQ) || (target.sense == SENSE_EQ) || (target.sense == SENSE_LEQ)) {
-						logprint("..parsing rhs");
-						try {
-							target.rhs = Double.parseDouble(nextToken);
-						} catch (NumberFormatException ex) {
-							throw new ParseException("line " + lineNo + ": '" + nextToken + "' is not a valid rhs entry", lineNo);
-						}
-						logprint("..saving rhs in Constraint");
-						target.rhs *= currSign;
-						constrComplete = true;
-					} else {
-						logprint("..parsing summand");
-						parseSummand(nextToken, target, lineNo, currSign);
-						currSign = 0;
+					logprint("..parsing summand");
+					double coeff = 1;
+					if (token == LPLexer.NUMBER) {
+						coeff = lexer.number();
+						String coeffStr = lexer.token();
+						token = lexer.next();
+						if (token != LPLexer.NAME)
+							throw new ParseException("line " + lineNo + ": '" + coeffStr + "' is not a valid summand", lineNo);
 					}
+					addCoefficient(row, variable(lexer), currSign * coeff);
+					currSign = 0;
 				}
 			}
 		}
 
-		return constrComplete;
+		return complete;
 	}
 
-	private void parseSummand(String expr, Constraint target, int lineNo, int sign) throws ParseException {
-		int si = summandSplitIndex(expr);
-		if (si == -1)
-			throw new ParseException("line " + lineNo + ": '" + expr + "' is not a valid summand", lineNo);
-		double coeff = 1;
-		if (si > 0) {
-			String coeffStr = expr.substring(0, si).trim();
-			try {
-				coeff = Double.parseDouble(coeffStr);
-			} catch (NumberFormatException ex) {
-				throw new ParseException("line " + lineNo + ": '" + coeffStr + "' is not a valid number", lineNo);
-			}
-		}
+	/**
+	 * @return the number of the variable named by the last token, a new variable
+	 *         if the name is unknown
+	 */
+	private int variable(LPLexer lexer) {
+		int known = variables.size();
+		int j = lexer.intern(variables);
+		if (j == known)
+			newVariable(j);
+		return j;
+	}
 
-		String varStr = expr.substring(si).trim();
-		if (!varStr.matches(VARNAME_PATTERN))
-			throw new ParseException("line " + lineNo + ": '" + varStr + "' is not a valid variable name", lineNo);
-		Variable var = varHash.get(varStr);
-		if (var == null) {
-			var = new Variable(varStr, varHash.size());
-			varHash.put(varStr, var);
-			target.coeff.put(varStr, new Coefficient(var.no, target.no, sign * coeff));
-		} else {
-			Coefficient co = target.coeff.get(varStr);
-			if (co == null) {
-				target.coeff.put(varStr, new Coefficient(var.no, target.no, sign * coeff));
-			} else {
-				co.value += coeff;
-			}
+	private int variable(String name) {
+		int known = variables.size();
+		int j = variables.add(name);
+		if (j == known)
+			newVariable(j);
+		return j;
+	}
+
+	private void newVariable(int j) {
+		if (verbose)
+			logprint("new Variable '" + variables.name(j) + "' (no " + j + ")");
+		if (j == obj.length) {
+			int capacity = 2 * j;
+			obj = Arrays.copyOf(obj, capacity);
+			lbound = Arrays.copyOf(lbound, capacity);
+			ubound = Arrays.copyOf(ubound, capacity);
 		}
+		lbound[j] = 0;
+		ubound[j] = Double.POSITIVE_INFINITY;
 	}
 
-	private int summandSplitIndex(String expr) {
-		boolean inExp = false;
-		for (int i = 0; i < expr.length(); ++i) {
-			char c = expr.charAt(i);
-			if (!(Character.isDigit(c) || (c == '.'))) {
-				if ((c == 'e') || (c == 'E')) {
-					if (inExp)
-						return i;
-					else
-						inExp = true;
-				} else
-					return i;
-			}
+	/**
+	 * Adds <code>coeff</code> to the coefficient of variable <code>j</code> in
+	 * row <code>row</code>, or in the objective if <code>row</code> is negative.
+	 * Repeated coefficients of a variable in a constraint are summed up when the
+	 * matrix is assembled.
+	 */
+	private void addCoefficient(int row, int j, double coeff) {
+		if (row < 0) {
+			obj[j] += coeff;
+			return;
 		}
-		return -1;
+		if (noOfCoeff == coeffRow.length)
+			growCoefficients(2 * noOfCoeff);
+		coeffRow[noOfCoeff] = row;
+		coeffCol[noOfCoeff] = j;
+		coeffValue[noOfCoeff] = coeff;
+		noOfCoeff++;
+	}
+
+	private void growCoefficients(int capacity) {
+		coeffRow = Arrays.copyOf(coeffRow, capacity);
+		coeffCol = Arrays.copyOf(coeffCol, capacity);
+		coeffValue = Arrays.copyOf(coeffValue, capacity);
+	}
+
+	/**
+	 * Drops the coefficients of a constraint that is incomplete at the end of
+	 * the input, they are the last ones.
+	 */
+	private void dropIncompleteConstraint() {
+		while ((noOfCoeff > 0) && (coeffRow[noOfCoeff - 1] >= noOfConstr))
+			noOfCoeff--;
 	}
 
 	private void logprint(String what) {
 		if (verbose)
-			System.out.println(what);
-	}
-
-	private void hash2arr() {
-		int noOfConstr = constrHash.size();
-		int noOfVar = varHash.size();
-
-		logprint(noOfConstr + " constraints, " + noOfVar + " variables");
-		constraint = new double[noOfConstr][noOfVar];
-		for (int i = 0; i < noOfConstr; ++i)
-			for (int j = 0; j < noOfVar; ++j)
-				constraint[i][j] = 0;
-		sense = new int[noOfConstr];
-		rhs = new double[noOfConstr];
-		constrName = new String[noOfConstr];
-		obj = new double[noOfVar];
-		for (int j = 0; j < noOfVar; ++j)
-			obj[j] = 0;
-		objsense = objRaw.sense;
-		lbound = new double[noOfVar];
-		ubound = new double[noOfVar];
-		varName = new String[noOfVar];
-
-		for (Iterator<Coefficient> objCoeffIt = objRaw.coeff.values().iterator(); objCoeffIt.hasNext();) {
-			Coefficient coeff = objCoeffIt.next();
-			obj[coeff.varNo] = coeff.value;
-		}
+			LOG.info(what);
+	}
 
-		for (Iterator<Constraint> constrIt = constrHash.values().iterator(); constrIt.hasNext();) {
-			Constraint curConstr = constrIt.next();
-			int i = curConstr.no;
-			sense[i] = curConstr.sense;
-			rhs[i] = curConstr.rhs;
-			constrName[i] = curConstr.name;
-			for (Iterator<Coefficient> coeffIt = curConstr.coeff.values().iterator(); coeffIt.hasNext();) {
-				Coefficient coeff = coeffIt.next();
-				constraint[i][coeff.varNo] = coeff.value;
-			}
-		}
+	private void toArrays() {
+		int noOfVar = variables.size();
 
-		for (Iterator<Variable> varIt = varHash.values().iterator(); varIt.hasNext();) {
-			Variable curVar = varIt.next();
-			int j = curVar.no;
-			lbound[j] = curVar.lb;
-			ubound[j] = curVar.ub;
-			varName[j] = curVar.name;
-		}
+		if (verbose)
+			logprint(noOfConstr + " constraints, " + noOfVar + " variables");
+		dropIncompleteConstraint();
+		constraint = SparseMatrix.fromTriplets(noOfConstr, noOfVar, coeffRow, coeffCol, coeffValue, noOfCoeff);
+		sense = Arrays.copyOf(sense, noOfConstr);
+		rhs = Arrays.copyOf(rhs, noOfConstr);
+		constrName = Arrays.copyOf(constrName, noOfConstr);
+		obj = Arrays.copyOf(obj, noOfVar);
+		lbound = Arrays.copyOf(lbound, noOfVar);
+		ubound = Arrays.copyOf(ubound, noOfVar);
+		varName = variables.names();
+
+		coeffRow = null;
+		coeffCol = null;
+		coeffValue = null;
 	}
 
 }
@@ -0,0 +1,586 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+
+/**
+ * Reads linear programs from MPS files in fixed or free format.
+ *
+ * MPS lists the coefficients column by column, so the constraint matrix is
+ * built in compressed column storage while reading, without collecting the
+ * coefficients first. The first <code>N</code> row is the objective, further
+ * <code>N</code> rows are ignored, as are all but the first set of the
+ * <code>RHS</code>, <code>RANGES</code> and <code>BOUNDS</code> sections. A
+ * right hand side of the objective is its negated constant. A range on a row
+ * turns the row into an equality with an additional column <code>Rg</code>
+ * and the row name, bounded by the width of the range, as in the CPLEX LP
+ * format. Integer markers and integer bound types are read as their
+ * relaxation. Bounds of 1e30 and more are infinite.
+ */
+public class MPSReader {
+	/**
+	 * The layout of the data lines. In fixed format the fields are found by
+	 * their columns and names may contain spaces, in free format the fields are
+	 * separated by white space.
+	 */
+	public static enum Format {
+		FIXED, FREE
+	}
+
+	private static final Charset ASCII = Charset.forName("US-ASCII");
+	private static final double INFINITY = 1e30;
+	/** start and end columns of the six fields in fixed format */
+	private static final int[] FIELD_START = { 1, 4, 14, 24, 39, 49 };
+	private static final int[] FIELD_END = { 3, 12, 22, 36, 47, 61 };
+
+	private static final int SEC_NONE = 0;
+	private static final int SEC_NAME = 1;
+	private static final int SEC_OBJSENSE = 2;
+	private static final int SEC_ROWS = 3;
+	private static final int SEC_COLUMNS = 4;
+	private static final int SEC_RHS = 5;
+	private static final int SEC_RANGES = 6;
+	private static final int SEC_BOUNDS = 7;
+	private static final int SEC_END = 8;
+
+	private static final int ROW_OBJECTIVE = -1;
+	private static final int ROW_FREE = -2;
+
+	private final String filename;
+	private final Format format;
+
+	private int lineNo;
+	private final String[] fields = new String[6];
+
+	/** all rows, mapped to the number of the constraint, or ROW_* */
+	private SymbolTable rows;
+	private int[] rowNumber;
+	private String[] constraintNames;
+	private Sense[] senses;
+	private double[] rhs;
+	private double[] range;
+	private int noOfConstr;
+	private boolean hasObjective;
+
+	private SymbolTable columns;
+	private double[] obj;
+	private double[] lower;
+	private double[] upper;
+	private double objConstant;
+	private ObjectiveGoal objGoal;
+
+	private int[] columnStart;
+	private int[] rowIndex;
+	private double[] values;
+	private int nnz;
+
+	private String rhsSet;
+	private String rangeSet;
+	private String boundSet;
+
+	/**
+	 * Initialises the reader for a file in free format.
+	 */
+	public MPSReader(String filename) {
+		this(filename, Format.FREE);
+	}
+
+	public MPSReader(String filename, Format format) {
+		this.filename = filename;
+		this.format = format;
+	}
+
+	/**
+	 * Reads the linear program from the file.
+	 */
+	public LinearProgram read() throws ParseException, IOException {
+		init();
+		BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(filename), ASCII), 1 << 16);
+		try {
+			int section = SEC_NONE;
+			String line;
+			while ((section != SEC_END) && ((line = in.readLine()) != null)) {
+				lineNo++;
+				if ((line.length() == 0) || (line.charAt(0) == '*') || line.trim().isEmpty()) {
+					continue;
+				}
+				if (!isSpace(line.charAt(0))) {
+					section = parseHeader(line, section);
+				} else {
+					parseData(line, section);
+				}
+			}
+			if (section != SEC_END) {
+				throw new ParseException("line " + lineNo + ": missing ENDATA", lineNo);
+			}
+		} finally {
+			in.close();
+		}
+		return toLinearProgram();
+	}
+
+	private void init() {
+		lineNo = 0;
+		rows = new SymbolTable();
+		rowNumber = new int[64];
+		constraintNames = new String[64];
+		senses = new Sense[64];
+		rhs = new double[64];
+		range = new double[64];
+		noOfConstr = 0;
+		hasObjective = false;
+		columns = new SymbolTable();
+		obj = new double[64];
+		lower = new double[64];
+		upper = new double[64];
+		objConstant = 0;
+		objGoal = ObjectiveGoal.MIN;
+		columnStart = new int[65];
+		rowIndex = new int[1024];
+		values = new double[1024];
+		nnz = 0;
+		rhsSet = null;
+		rangeSet = null;
+		boundSet = null;
+	}
+
+	private int parseHeader(String line, int section) throws ParseException {
+		String[] words = line.trim().split("\\s+");
+		String keyword = words[0].toUpperCase();
+		if (section == SEC_COLUMNS) {
+			finishColumn();
+		}
+		if (keyword.equals("NAME")) {
+			return SEC_NAME;
+		} else if (keyword.equals("OBJSENSE")) {
+			if (words.length > 1) {
+				parseObjSense(words[1]);
+			}
+			return SEC_OBJSENSE;
+		} else if (keyword.equals("ROWS")) {
+			return SEC_ROWS;
+		} else if (keyword.equals("COLUMNS")) {
+			return SEC_COLUMNS;
+		} else if (keyword.equals("RHS")) {
+			return SEC_RHS;
+		} else if (keyword.equals("RANGES")) {
+			return SEC_RANGES;
+		} else if (keyword.equals("BOUNDS")) {
+			return SEC_BOUNDS;
+		} else if (keyword.equals("ENDATA")) {
+			return SEC_END;
+		}
+		throw new ParseException("line " + lineNo + ": unknown section '" + words[0] + "'", lineNo);
+	}
+
+	private void parseData(String line, int section) throws ParseException {
+		switch (section) {
+		case SEC_OBJSENSE:
+			parseObjSense(line.trim());
+			break;
+		case SEC_ROWS:
+			split(line, 2, 0);
+			parseRow(fields[0], fields[1]);
+			break;
+		case SEC_COLUMNS:
+			if (split(line, 5, 1) >= 3 && "'MARKER'".equals(fields[2])) {
+				break;
+			}
+			parseColumn();
+			break;
+		case SEC_RHS:
+		case SEC_RANGES:
+			parseValues(section, split(line, 5, 1));
+			break;
+		case SEC_BOUNDS:
+			parseBound(split(line, 4, 0));
+			break;
+		default:
+			throw new ParseException("line " + lineNo + ": data outside of a section", lineNo);
+		}
+	}
+
+	/**
+	 * Splits a data line into the fixed format fields from
+	 * <code>first</code> on, missing fields are <code>null</code>.
+	 *
+	 * @return the number of tokens in free format
+	 */
+	private int split(String line, int maxTokens, int first) throws ParseException {
+		Arrays.fill(fields, null);
+		if (format == Format.FIXED) {
+			int n = 0;
+			for (int f = 0; f < fields.length; f++) {
+				if (FIELD_START[f] < line.length()) {
+					String field = line.substring(FIELD_START[f], Math.min(FIELD_END[f], line.length())).trim();
+					if (field.length() > 0) {
+						fields[f] = field;
+						n++;
+					}
+				}
+			}
+			return n;
+		}
+
+		int n = 0;
+		int pos = 0;
+		while (true) {
+			while (pos < line.length() && isSpace(line.charAt(pos))) {
+				pos++;
+			}
+			if (pos == line.length()) {
+				break;
+			}
+			int start = pos;
+			while (pos < line.length() && !isSpace(line.charAt(pos))) {
+				pos++;
+			}
+			if (n == maxTokens) {
+				throw new ParseException("line " + lineNo + ": too many fields", lineNo);
+			}
+			fields[first + n++] = line.substring(start, pos);
+		}
+		return n;
+	}
+
+	private void parseObjSense(String sense) throws ParseException {
+		String s = sense.toUpperCase();
+		if (s.equals("MAX") || s.equals("MAXIMIZE")) {
+			objGoal = ObjectiveGoal.MAX;
+		} else if (s.equals("MIN") || s.equals("MINIMIZE")) {
+			objGoal = ObjectiveGoal.MIN;
+		} else {
+			throw new ParseException("line " + lineNo + ": unknown objective sense '" + sense + "'", lineNo);
+		}
+	}
+
+	private void parseRow(String type, String name) throws ParseException {
+		if (type == null || name == null) {
+			throw new ParseException("line " + lineNo + ": expected a row type and name", lineNo);
+		}
+		if (rows.indexOf(name) >= 0) {
+			throw new ParseException("line " + lineNo + ": ambiguous row name '" + name + "'", lineNo);
+		}
+		int r = rows.add(name);
+		if (r == rowNumber.length) {
+			rowNumber = Arrays.copyOf(rowNumber, 2 * r);
+		}
+		Sense sense;
+		String t = type.toUpperCase();
+		if (t.equals("N")) {
+			rowNumber[r] = hasObjective ? ROW_FREE : ROW_OBJECTIVE;
+			hasObjective = true;
+			return;
+		} else if (t.equals("L")) {
+			sense = Sense.LEQ;
+		} else if (t.equals("G")) {
+			sense = Sense.GEQ;
+		} else if (t.equals("E")) {
+			sense = Sense.EQ;
+		} else {
+			throw new ParseException("line " + lineNo + ": unknown row type '" + type + "'", lineNo);
+		}
+
+		int i = noOfConstr++;
+		if (i == senses.length) {
+			int capacity = 2 * i;
+			constraintNames = Arrays.copyOf(constraintNames, capacity);
+			senses = Arrays.copyOf(senses, capacity);
+			rhs = Arrays.copyOf(rhs, capacity);
+			range = Arrays.copyOf(range, capacity);
+		}
+		rowNumber[r] = i;
+		constraintNames[i] = name;
+		senses[i] = sense;
+		rhs[i] = 0;
+		range[i] = Double.NaN;
+	}
+
+	private void parseColumn() throws ParseException {
+		String name = fields[1];
+		if (name == null || fields[2] == null || fields[3] == null) {
+			throw new ParseException("line " + lineNo + ": expected a column, a row and a value", lineNo);
+		}
+		int numColumns = columns.size();
+		if (numColumns == 0 || !name.equals(columns.name(numColumns - 1))) {
+			if (numColumns > 0) {
+				finishColumn();
+			}
+			if (columns.indexOf(name) >= 0) {
+				throw new ParseException("line " + lineNo + ": entries of column '" + name + "' are not contiguous", lineNo);
+			}
+			addColumn(name);
+		}
+		int j = columns.size() - 1;
+		addEntry(j, fields[2], fields[3]);
+		if (fields[4] != null) {
+			addEntry(j, fields[4], fields[5]);
+		}
+	}
+
+	private int addColumn(String name) {
+		int j = columns.add(name);
+		if (j == obj.length) {
+			int capacity = 2 * j;
+			obj = Arrays.copyOf(obj, capacity);
+			lower = Arrays.copyOf(lower, capacity);
+			upper = Arrays.copyOf(upper, capacity);
+			columnStart = Arrays.copyOf(columnStart, capacity + 1);
+		}
+		obj[j] = 0;
+		lower[j] = 0;
+		upper[j] = Double.POSITIVE_INFINITY;
+		columnStart[j] = nnz;
+		columnStart[j + 1] = nnz;
+		return j;
+	}
+
+	private void addEntry(int j, String rowName, String valueStr) throws ParseException {
+		int row = row(rowName);
+		double value = number(valueStr);
+		if (row == ROW_OBJECTIVE) {
+			obj[j] += value;
+		} else if (row != ROW_FREE) {
+			addEntry(row, value);
+		}
+	}
+
+	private void addEntry(int row, double value) {
+		if (nnz == rowIndex.length) {
+			rowIndex = Arrays.copyOf(rowIndex, 2 * nnz);
+			values = Arrays.copyOf(values, 2 * nnz);
+		}
+		rowIndex[nnz] = row;
+		values[nnz] = value;
+		nnz++;
+	}
+
+	/**
+	 * Sorts the entries of the last column by row and sums up repeated rows.
+	 */
+	private void finishColumn() {
+		int j = columns.size() - 1;
+		if (j < 0) {
+			return;
+		}
+		int from = columnStart[j];
+		for (int k = from + 1; k < nnz; k++) {
+			int r = rowIndex[k];
+			double v = values[k];
+			int l = k - 1;
+			while (l >= from && rowIndex[l] > r) {
+				rowIndex[l + 1] = rowIndex[l];
+				values[l + 1] = values[l];
+				l--;
+			}
+			rowIndex[l + 1] = r;
+			values[l + 1] = v;
+		}
+		int end = from;
+		for (int k = from; k < nnz; k++) {
+			if (end > from && rowIndex[end - 1] == rowIndex[k]) {
+				values[end - 1] += values[k];
+			} else {
+				rowIndex[end] = rowIndex[k];
+				values[end] = values[k];
+				end++;
+			}
+		}
+		nnz = end;
+		columnStart[j + 1] = nnz;
+	}
+
+	/**
+	 * Parses a line of the RHS or RANGES section, whose set name is optional in
+	 * free format.
+	 */
+	private void parseValues(int section, int tokens) throws ParseException {
+		if ((format == Format.FREE) && (tokens % 2 == 0)) {
+			System.arraycopy(fields, 1, fields, 2, 4);
+			fields[1] = "";
+		}
+		String set = fields[1];
+		if (section == SEC_RHS) {
+			rhsSet = firstSet(rhsSet, set);
+			if (!isFirstSet(rhsSet, set)) {
+				return;
+			}
+		} else {
+			rangeSet = firstSet(rangeSet, set);
+			if (!isFirstSet(rangeSet, set)) {
+				return;
+			}
+		}
+		if (fields[2] == null || fields[3] == null) {
+			throw new ParseException("line " + lineNo + ": expected a row and a value", lineNo);
+		}
+		setValue(section, fields[2], fields[3]);
+		if (fields[4] != null) {
+			setValue(section, fields[4], fields[5]);
+		}
+	}
+
+	private void setValue(int section, String rowName, String valueStr) throws ParseException {
+		int row = row(rowName);
+		double value = number(valueStr);
+		if (section == SEC_RHS) {
+			if (row == ROW_OBJECTIVE) {
+				objConstant = -value;
+			} else if (row != ROW_FREE) {
+				rhs[row] = value;
+			}
+		} else if (row >= 0) {
+			range[row] = value;
+		}
+	}
+
+	private void parseBound(int tokens) throws ParseException {
+		String type = (fields[0] == null) ? "" : fields[0].toUpperCase();
+		boolean hasValue = !(type.equals("FR") || type.equals("MI") || type.equals("PL") || type.equals("BV"));
+		if (format == Format.FREE) {
+			// Move the fields to their fixed positions, the set name is optional
+			String[] tokenList = { fields[1], fields[2], fields[3] };
+			boolean hasSet = hasValue ? (tokens == 4) : (tokens == 4 || (tokens == 3 && columns.indexOf(tokenList[1]) >= 0));
+			fields[1] = hasSet ? tokenList[0] : "";
+			fields[2] = hasSet ? tokenList[1] : tokenList[0];
+			fields[3] = hasSet ? tokenList[2] : tokenList[1];
+		}
+		boundSet = firstSet(boundSet, fields[1]);
+		if (!isFirstSet(boundSet, fields[1])) {
+			return;
+		}
+		if (fields[2] == null) {
+			throw new ParseException("line " + lineNo + ": expected a column", lineNo);
+		}
+		int j = columns.indexOf(fields[2]);
+		if (j < 0) {
+			throw new ParseException("line " + lineNo + ": unknown column '" + fields[2] + "'", lineNo);
+		}
+		double value = 0;
+		if (hasValue) {
+			if (fields[3] == null) {
+				throw new ParseException("line " + lineNo + ": expected a bound value", lineNo);
+			}
+			value = number(fields[3]);
+			if (value >= INFINITY) {
+				value = Double.POSITIVE_INFINITY;
+			} else if (value <= -INFINITY) {
+				value = Double.NEGATIVE_INFINITY;
+			}
+		}
+
+		if (type.equals("UP") || type.equals("UI")) {
+			upper[j] = value;
+			if (value < 0 && lower[j] == 0) {
+				lower[j] = Double.NEGATIVE_INFINITY;
+			}
+		} else if (type.equals("LO") || type.equals("LI")) {
+			lower[j] = value;
+		} else if (type.equals("FX")) {
+			lower[j] = value;
+			upper[j] = value;
+		} else if (type.equals("FR")) {
+			lower[j] = Double.NEGATIVE_INFINITY;
+			upper[j] = Double.POSITIVE_INFINITY;
+		} else if (type.equals("MI")) {
+			lower[j] = Double.NEGATIVE_INFINITY;
+		} else if (type.equals("PL")) {
+			upper[j] = Double.POSITIVE_INFINITY;
+		} else if (type.equals("BV")) {
+			lower[j] = 0;
+			upper[j] = 1;
+		} else {
+			throw new ParseException("line " + lineNo + ": unsupported bound type '" + fields[0] + "'", lineNo);
+		}
+	}
+
+	/**
+	 * Turns ranged rows into equalities with a bounded range column and
+	 * assembles the program.
+	 */
+	private LinearProgram toLinearProgram() {
+		int numRows = noOfConstr;
+		for (int i = 0; i < numRows; i++) {
+			double r = range[i];
+			if (Double.isNaN(r) || (r == 0 && senses[i] == Sense.EQ)) {
+				continue;
+			}
+			double low;
+			double width = Math.abs(r);
+			if (senses[i] == Sense.LEQ || (senses[i] == Sense.EQ && r < 0)) {
+				low = rhs[i] - width;
+			} else {
+				low = rhs[i];
+			}
+			String name = "Rg" + constraintNames[i];
+			while (columns.indexOf(name) >= 0) {
+				name = name + "_";
+			}
+			int j = addColumn(name);
+			upper[j] = width;
+			addEntry(i, -1.0);
+			columnStart[j + 1] = nnz;
+			senses[i] = Sense.EQ;
+			rhs[i] = low;
+		}
+
+		int numColumns = columns.size();
+		SparseMatrix constraints = new SparseMatrix(numRows, Arrays.copyOf(columnStart, numColumns + 1),
+				Arrays.copyOf(rowIndex, nnz), Arrays.copyOf(values, nnz));
+		LinearProgram program = new LinearProgram(constraints, Arrays.copyOf(rhs, numRows), Arrays.copyOf(senses,
+				numRows), Arrays.copyOf(lower, numColumns), Arrays.copyOf(upper, numColumns), Arrays.copyOf(obj,
+				numColumns), objGoal, Arrays.copyOf(constraintNames, numRows), columns.names());
+		program.objConstant = objConstant;
+		return program;
+	}
+
+	private static String firstSet(String first, String set) {
+		return (first == null && set != null && set.length() > 0) ? set : first;
+	}
+
+	/**
+	 * @return whether a line of the set <code>set</code> is read, lines without
+	 *         a set name always are
+	 */
+	private static boolean isFirstSet(String first, String set) {
+		return set == null || set.length() == 0 || set.equals(first);
+	}
+
+	private int row(String name) throws ParseException {
+		int r = rows.indexOf(name);
+		if (r < 0) {
+			throw new ParseException("line " + lineNo + ": unknown row '" + name + "'", lineNo);
+		}
+		return rowNumber[r];
+	}
+
+	private double number(String str) throws ParseException {
+		if (str == null) {
+			throw new ParseException("line " + lineNo + ": missing value", lineNo);
+		}
+		String s = str.toLowerCase();
+		if (s.equals("inf") || s.equals("+inf") || s.equals("infinity") || s.equals("+infinity")) {
+			return Double.POSITIVE_INFINITY;
+		}
+		if (s.equals("-inf") || s.equals("-infinity")) {
+			return Double.NEGATIVE_INFINITY;
+		}
+		try {
+			return Double.parseDouble(str);
+		} catch (NumberFormatException e) {
+			throw new ParseException("line " + lineNo + ": '" + str + "' is not a number", lineNo);
+		}
+	}
+
+	private static boolean isSpace(char c) {
+		return c == ' ' || c == '\t';
+	}
+}
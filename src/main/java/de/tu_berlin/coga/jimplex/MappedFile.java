@@ -0,0 +1,84 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped into memory. As a single mapping is limited to 2 GB,
+ * the file is mapped in regions of 1 GB. Byte ranges of the file can be read
+ * through independent input streams, so several threads can read from the
+ * same mapping.
+ */
+class MappedFile {
+	private static final int REGION_BITS = 30;
+	private static final int REGION_SIZE = 1 << REGION_BITS;
+
+	private final long size;
+	private final MappedByteBuffer[] regions;
+
+	MappedFile(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			size = channel.size();
+			regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_BITS)];
+			for (int r = 0; r < regions.length; r++) {
+				long start = (long) r << REGION_BITS;
+				regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+			}
+		} finally {
+			// The mapping stays valid after the channel is closed
+			file.close();
+		}
+	}
+
+	/**
+	 * @return the length of the file in bytes
+	 */
+	long size() {
+		return size;
+	}
+
+	/**
+	 * @return the byte at position <code>pos</code>
+	 */
+	byte get(long pos) {
+		return regions[(int) (pos >>> REGION_BITS)].get((int) (pos & (REGION_SIZE - 1)));
+	}
+
+	/**
+	 * @return a stream of the bytes from position <code>from</code> to
+	 *         <code>to - 1</code>
+	 */
+	InputStream open(final long from, final long to) {
+		return new InputStream() {
+			private long pos = from;
+			private ByteBuffer region;
+
+			@Override
+			public int read() {
+				return (pos < to) ? get(pos++) & 0xff : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (pos >= to) {
+					return -1;
+				}
+				int offset = (int) (pos & (REGION_SIZE - 1));
+				if (offset == 0 || region == null) {
+					region = regions[(int) (pos >>> REGION_BITS)].duplicate();
+					region.position(offset);
+				}
+				int n = (int) Math.min(Math.min(len, to - pos), region.remaining());
+				region.get(b, off, n);
+				pos += n;
+				return n;
+			}
+		};
+	}
+}
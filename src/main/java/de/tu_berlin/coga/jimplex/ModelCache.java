@@ -0,0 +1,174 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Keeps parsed linear programs in memory, so that a model file is parsed only
+ * once however often it is requested.
+ *
+ * Entries are keyed by the SHA-256 digest of the file content, a file that is
+ * requested under a different path or that has been rewritten with the same
+ * content is therefore found again. When the number of entries or their
+ * estimated memory exceeds the limits, the least recently used entries are
+ * evicted. The cached programs are never handed out, {@link #get(String)}
+ * returns a {@link LinearProgram#copy() copy} that may be normalized and
+ * solved. Files are read by {@link LinearProgram#read(String)}.
+ *
+ * The cache may be used by several threads. Files are digested and parsed
+ * outside of the lock, a file that is requested by two threads at the same
+ * time may thus be parsed twice.
+ */
+public class ModelCache {
+	private final int maxEntries;
+	private final long maxBytes;
+	private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<ByteBuffer, Entry>(16, 0.75f, true);
+	private long bytes;
+	private long hits;
+	private long misses;
+
+	/**
+	 * @param maxEntries
+	 *          maximal number of cached programs
+	 * @param maxBytes
+	 *          maximal estimated memory of the cached programs
+	 */
+	public ModelCache(int maxEntries, long maxBytes) {
+		Preconditions.checkArgument(maxEntries > 0, "maxEntries must be positive");
+		Preconditions.checkArgument(maxBytes > 0, "maxBytes must be positive");
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns the program in <code>filename</code>, parsing the file only if
+	 * its content is not cached.
+	 *
+	 * @return a copy of the cached program
+	 */
+	public LinearProgram get(String filename) throws IOException, ParseException {
+		ByteBuffer key = ByteBuffer.wrap(digest(filename));
+		synchronized (this) {
+			Entry entry = entries.get(key);
+			if (entry != null) {
+				hits++;
+				return entry.program.copy();
+			}
+			misses++;
+		}
+
+		LinearProgram program = LinearProgram.read(filename);
+		put(key, program);
+		return program.copy();
+	}
+
+	private synchronized void put(ByteBuffer key, LinearProgram program) {
+		Entry entry = new Entry(program);
+		if (entry.bytes > maxBytes || entries.containsKey(key)) {
+			return;
+		}
+		entries.put(key, entry);
+		bytes += entry.bytes;
+		Iterator<Map.Entry<ByteBuffer, Entry>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxEntries || bytes > maxBytes) {
+			bytes -= eldest.next().getValue().bytes;
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Removes all programs from the cache. The counters are kept.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * @return the number of requests answered from the cache
+	 */
+	public synchronized long hitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of requests that had to parse the file
+	 */
+	public synchronized long missCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of cached programs
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated memory of the cached programs in bytes
+	 */
+	public synchronized long memoryUsage() {
+		return bytes;
+	}
+
+	private static byte[] digest(String filename) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		InputStream in = new FileInputStream(filename);
+		try {
+			byte[] buffer = new byte[1 << 16];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * @return an estimate of the heap memory held by <code>program</code>
+	 */
+	static long estimateSize(LinearProgram program) {
+		int numRows = program.constraints.getNumRows();
+		int numColumns = program.numVariables;
+		long size = 12L * program.constraints.getNumNonZeros() + 4L * (numColumns + 1);
+		// rhs, senses and names of the constraints
+		size += 16L * numRows;
+		// objective, bounds, values and names of the variables
+		size += 36L * numColumns;
+		for (String name : program.constraintNames) {
+			size += (name == null) ? 0 : 40 + 2 * name.length();
+		}
+		for (String name : program.varName) {
+			size += (name == null) ? 0 : 40 + 2 * name.length();
+		}
+		return size;
+	}
+
+	private static class Entry {
+		final LinearProgram program;
+		final long bytes;
+
+		Entry(LinearProgram program) {
+			this.program = program;
+			this.bytes = estimateSize(program);
+		}
+	}
+}
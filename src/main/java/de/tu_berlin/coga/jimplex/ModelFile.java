@@ -0,0 +1,327 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+
+/**
+ * Stores a {@link LinearProgram} in a compact binary file that loads much
+ * faster than parsing text.
+ *
+ * The file starts with a header of {@value #HEADER_SIZE} bytes holding a magic
+ * number, the format version and the dimensions. The arrays follow in little
+ * endian order, the ones of doubles first, then those of ints and bytes, so
+ * every array is aligned to its element size: the matrix values, the right
+ * hand side, the lower and upper bounds and the objective, then the column
+ * starts and row indices of the matrix, the senses, and finally the names of
+ * the constraints and variables as a pool of UTF-8 bytes with the end offset
+ * of each name. Loading maps the file into memory and copies each array in
+ * bulk, so it costs about as much as reading the file.
+ */
+public class ModelFile {
+	/** 'JMPX' */
+	private static final int MAGIC = 0x4a4d5058;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 48;
+	/** bytes of the write buffer, and elements of the regions mapped for reading */
+	private static final int BLOCK_SIZE = 1 << 20;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final String filename;
+
+	public ModelFile(String filename) {
+		this.filename = filename;
+	}
+
+	/**
+	 * Writes <code>program</code> to the file, including slack variables if it
+	 * has been normalized.
+	 */
+	public void write(LinearProgram program) throws IOException {
+		SparseMatrix A = program.constraints;
+		int numRows = A.getNumRows();
+		int numColumns = program.numVariables;
+		int nnz = A.getNumNonZeros();
+		byte[][] names = new byte[numRows + numColumns][];
+		int poolSize = 0;
+		for (int i = 0; i < numRows; i++) {
+			names[i] = encode(program.constraintNames[i]);
+			poolSize += names[i].length;
+		}
+		for (int j = 0; j < numColumns; j++) {
+			names[numRows + j] = encode(program.varName[j]);
+			poolSize += names[numRows + j].length;
+		}
+
+		RandomAccessFile file = new RandomAccessFile(filename, "rw");
+		try {
+			file.setLength(0);
+			Writer out = new Writer(file.getChannel());
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(numRows);
+			out.putInt(numColumns);
+			out.putInt(nnz);
+			out.putInt(program.numSlackVariables);
+			out.putInt(program.objGoal.ordinal());
+			out.putInt(poolSize);
+			out.putDouble(program.objConstant);
+			out.putLong(0);
+
+			for (int j = 0; j < numColumns; j++) {
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					out.putDouble(A.value(k));
+				}
+			}
+			out.putDoubles(program.rightHandSide, numRows);
+			out.putDoubles(program.lowerBound, numColumns);
+			out.putDoubles(program.upperBound, numColumns);
+			out.putDoubles(program.obj, numColumns);
+			for (int j = 0; j <= numColumns; j++) {
+				out.putInt(A.columnStart(j));
+			}
+			for (int j = 0; j < numColumns; j++) {
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					out.putInt(A.rowIndex(k));
+				}
+			}
+			int end = 0;
+			for (byte[] name : names) {
+				end += name.length;
+				out.putInt(end);
+			}
+			for (int i = 0; i < numRows; i++) {
+				out.put((byte) program.senses[i].ordinal());
+			}
+			for (byte[] name : names) {
+				out.put(name);
+			}
+			out.flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Loads the program from the file.
+	 *
+	 * @throws IOException
+	 *           if the file is not a model file of this version, truncated or
+	 *           its matrix, senses or names are inconsistent
+	 */
+	public LinearProgram read() throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				throw new IOException(filename + " is not a model file");
+			}
+			ByteBuffer header = map(channel, 0, HEADER_SIZE);
+			if (header.getInt() != MAGIC) {
+				throw new IOException(filename + " is not a model file");
+			}
+			int version = header.getInt();
+			if (version != VERSION) {
+				throw new IOException(filename + " has unsupported version " + version);
+			}
+			int numRows = header.getInt();
+			int numColumns = header.getInt();
+			int nnz = header.getInt();
+			int numSlack = header.getInt();
+			int goal = header.getInt();
+			int poolSize = header.getInt();
+			double objConstant = header.getDouble();
+
+			long expected = HEADER_SIZE + 8L * (nnz + numRows + 3L * numColumns) + 4L * (numColumns + 1 + nnz)
+					+ 4L * (numRows + numColumns) + numRows + poolSize;
+			if (numRows < 0 || numColumns < 0 || nnz < 0 || poolSize < 0 || numSlack < 0 || numSlack > numColumns
+					|| size != expected || goal < 0 || goal >= ObjectiveGoal.values().length) {
+				throw corrupt();
+			}
+			ObjectiveGoal objGoal = ObjectiveGoal.values()[goal];
+
+			long pos = HEADER_SIZE;
+			double[] values = new double[nnz];
+			pos = getDoubles(channel, pos, values);
+			double[] rhs = new double[numRows];
+			pos = getDoubles(channel, pos, rhs);
+			double[] lower = new double[numColumns];
+			pos = getDoubles(channel, pos, lower);
+			double[] upper = new double[numColumns];
+			pos = getDoubles(channel, pos, upper);
+			double[] obj = new double[numColumns];
+			pos = getDoubles(channel, pos, obj);
+			int[] columnStart = new int[numColumns + 1];
+			pos = getInts(channel, pos, columnStart);
+			int[] rowIndex = new int[nnz];
+			pos = getInts(channel, pos, rowIndex);
+			int[] nameEnd = new int[numRows + numColumns];
+			pos = getInts(channel, pos, nameEnd);
+			byte[] senseCodes = new byte[numRows];
+			pos = getBytes(channel, pos, senseCodes);
+			byte[] pool = new byte[poolSize];
+			getBytes(channel, pos, pool);
+
+			// The payload is not trusted, anything that would make the program
+			// inconsistent or the decoding fail is reported as corruption
+			if (columnStart[0] != 0 || columnStart[numColumns] != nnz) {
+				throw corrupt();
+			}
+			for (int j = 0; j < numColumns; j++) {
+				if (columnStart[j] > columnStart[j + 1]) {
+					throw corrupt();
+				}
+			}
+			for (int k = 0; k < nnz; k++) {
+				if (rowIndex[k] < 0 || rowIndex[k] >= numRows) {
+					throw corrupt();
+				}
+			}
+			Sense[] senses = new Sense[numRows];
+			Sense[] allSenses = Sense.values();
+			for (int i = 0; i < numRows; i++) {
+				if (senseCodes[i] < 0 || senseCodes[i] >= allSenses.length) {
+					throw corrupt();
+				}
+				senses[i] = allSenses[senseCodes[i]];
+			}
+			String[] constraintNames = new String[numRows];
+			String[] varName = new String[numColumns];
+			int start = 0;
+			for (int k = 0; k < nameEnd.length; k++) {
+				if (nameEnd[k] < start || nameEnd[k] > poolSize) {
+					throw corrupt();
+				}
+				String name = new String(pool, start, nameEnd[k] - start, UTF8);
+				if (k < numRows) {
+					constraintNames[k] = name;
+				} else {
+					varName[k - numRows] = name;
+				}
+				start = nameEnd[k];
+			}
+
+			LinearProgram program = new LinearProgram(new SparseMatrix(numRows, columnStart, rowIndex, values), rhs,
+					senses, lower, upper, obj, objGoal, constraintNames, varName);
+			program.objConstant = objConstant;
+			program.numSlackVariables = numSlack;
+			return program;
+		} finally {
+			file.close();
+		}
+	}
+
+	private IOException corrupt() {
+		return new IOException(filename + " is truncated or corrupt");
+	}
+
+	private static byte[] encode(String name) {
+		return (name == null) ? new byte[0] : name.getBytes(UTF8);
+	}
+
+	private static ByteBuffer map(FileChannel channel, long pos, long length) throws IOException {
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+		buffer.order(ByteOrder.LITTLE_ENDIAN);
+		return buffer;
+	}
+
+	private static long getDoubles(FileChannel channel, long pos, double[] dst) throws IOException {
+		for (int from = 0; from < dst.length; from += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, dst.length - from);
+			map(channel, pos, 8L * n).asDoubleBuffer().get(dst, from, n);
+			pos += 8L * n;
+		}
+		return pos;
+	}
+
+	private static long getInts(FileChannel channel, long pos, int[] dst) throws IOException {
+		for (int from = 0; from < dst.length; from += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, dst.length - from);
+			map(channel, pos, 4L * n).asIntBuffer().get(dst, from, n);
+			pos += 4L * n;
+		}
+		return pos;
+	}
+
+	private static long getBytes(FileChannel channel, long pos, byte[] dst) throws IOException {
+		for (int from = 0; from < dst.length; from += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, dst.length - from);
+			map(channel, pos, n).get(dst, from, n);
+			pos += n;
+		}
+		return pos;
+	}
+
+	/**
+	 * Writes little endian values through a direct buffer.
+	 */
+	private static class Writer {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		Writer(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void put(byte value) throws IOException {
+			reserve(1);
+			buffer.put(value);
+		}
+
+		void put(byte[] values) throws IOException {
+			for (int from = 0; from < values.length;) {
+				reserve(1);
+				int n = Math.min(buffer.remaining(), values.length - from);
+				buffer.put(values, from, n);
+				from += n;
+			}
+		}
+
+		void putInt(int value) throws IOException {
+			reserve(4);
+			buffer.putInt(value);
+		}
+
+		void putLong(long value) throws IOException {
+			reserve(8);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			reserve(8);
+			buffer.putDouble(value);
+		}
+
+		void putDoubles(double[] values, int length) throws IOException {
+			for (int from = 0; from < length;) {
+				reserve(8);
+				int n = Math.min(buffer.remaining() / 8, length - from);
+				buffer.asDoubleBuffer().put(values, from, n);
+				buffer.position(buffer.position() + 8 * n);
+				from += n;
+			}
+		}
+
+		private void reserve(int bytes) throws IOException {
+			if (buffer.remaining() < bytes) {
+				flush();
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+	}
+}
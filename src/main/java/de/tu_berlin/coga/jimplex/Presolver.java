@@ -0,0 +1,535 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Preconditions;
+
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
+
+/**
+ * Removes redundant rows and columns from a linear program in general form
+ * before it is normalized, and maps the solution of the reduced program back
+ * to the original one.
+ *
+ * The following reductions are applied until none of them changes the program
+ * any more:
+ * <ul>
+ * <li>fixed columns (equal bounds) are substituted into the right-hand side</li>
+ * <li>empty columns are put at the bound that is best for the objective</li>
+ * <li>empty rows are dropped after checking their right-hand side</li>
+ * <li>singleton rows are turned into bounds of their variable</li>
+ * <li>duplicate rows, i.e. multiples of another row, are merged into it</li>
+ * <li>redundant rows, which cannot be violated within the variable bounds, are
+ * dropped</li>
+ * </ul>
+ * The original program is not modified except for its solution, which is set
+ * by {@link #postsolve(double[], int[])}.
+ */
+public class Presolver {
+	/** Absolute tolerance for comparing values, scaled with their magnitude. */
+	private static final double TOLERANCE = 1e-9;
+
+	public static enum Reduction {
+		FIXED_COLUMN, EMPTY_COLUMN, EMPTY_ROW, SINGLETON_ROW, DUPLICATE_ROW, REDUNDANT_ROW
+	}
+
+	private final LinearProgram program;
+	private final int numRows;
+	private final int numColumns;
+	private final SparseMatrix rows;
+	private final int[] originalSlack;
+
+	// Working copy of the program
+	private final double[] rhs;
+	private final Sense[] senses;
+	private final double[] lower;
+	private final double[] upper;
+	private final boolean[] rowActive;
+	private final boolean[] columnActive;
+	private final int[] rowCount;
+	private final int[] columnCount;
+	private final double[] value;
+	/** objective contribution of the removed columns */
+	private double objOffset;
+
+	private final int[] removedRows = new int[Reduction.values().length];
+	private final int[] removedColumns = new int[Reduction.values().length];
+
+	// Rows, columns and slack columns of the reduced program
+	private int[] rowMap;
+	private int[] columnMap;
+	private int[] slackRow;
+
+	/**
+	 * @param program
+	 *          a program that has not been normalized yet
+	 */
+	public Presolver(LinearProgram program) {
+		Preconditions.checkArgument(program.numSlackVariables == 0, "presolve the program before normalizing it");
+		this.program = program;
+		this.numRows = program.constraints.getNumRows();
+		this.numColumns = program.numVariables;
+		this.rows = program.constraints.transpose();
+
+		rhs = Arrays.copyOf(program.rightHandSide, numRows);
+		senses = Arrays.copyOf(program.senses, numRows);
+		lower = Arrays.copyOf(program.lowerBound, numColumns);
+		upper = Arrays.copyOf(program.upperBound, numColumns);
+		rowActive = new boolean[numRows];
+		columnActive = new boolean[numColumns];
+		rowCount = new int[numRows];
+		columnCount = new int[numColumns];
+		value = new double[numColumns];
+		Arrays.fill(rowActive, true);
+		Arrays.fill(columnActive, true);
+		for (int i = 0; i < numRows; i++) {
+			rowCount[i] = rows.columnEnd(i) - rows.columnStart(i);
+		}
+		for (int j = 0; j < numColumns; j++) {
+			columnCount[j] = program.constraints.columnEnd(j) - program.constraints.columnStart(j);
+		}
+
+		// Column of the slack variable of every row after normalize()
+		originalSlack = new int[numRows];
+		int slack = numColumns;
+		for (int i = 0; i < numRows; i++) {
+			originalSlack[i] = (senses[i] == Sense.EQ) ? -1 : slack++;
+		}
+	}
+
+	/**
+	 * Applies the reductions and builds the reduced program. The reduced
+	 * program is in general form and can be normalized and solved as usual.
+	 *
+	 * @throws InfeasibleLPException
+	 *           if a reduction proves that the program is infeasible
+	 */
+	public LinearProgram presolve() throws InfeasibleLPException {
+		Preconditions.checkState(columnMap == null, "program is already presolved");
+		boolean changed = true;
+		while (changed) {
+			changed = removeFixedColumns();
+			changed |= removeEmptyColumns();
+			changed |= removeRows();
+			changed |= mergeDuplicateRows();
+		}
+		return buildReduced();
+	}
+
+	/**
+	 * Sets the solution of the original program from the solution of the
+	 * reduced program and translates the basis of the reduced program to a
+	 * basis of the normalized original program. Rows removed by presolve get
+	 * their slack column, or their artificial column if they are equations. The
+	 * basis is a starting point for {@link RevisedSimplex#solve(int[])}, it is
+	 * not necessarily optimal since presolve may have tightened bounds.
+	 *
+	 * @param reducedSolution
+	 *          the solution of the program returned by {@link #presolve()}, as
+	 *          returned by {@link RevisedSimplex#getSolution()}
+	 * @param reducedBasis
+	 *          the basis returned by the solver for the reduced program
+	 * @return a basis of the original program in the same format
+	 */
+	public int[] postsolve(double[] reducedSolution, int[] reducedBasis) {
+		Preconditions.checkState(columnMap != null, "program is not presolved");
+		double[] variables = Arrays.copyOf(value, numColumns);
+		for (int j = 0; j < columnMap.length; j++) {
+			variables[columnMap[j]] = reducedSolution[j];
+		}
+		program.variables = variables;
+
+		int[] basis = new int[numRows];
+		int n = 0;
+		for (int j : reducedBasis) {
+			if (j < 0) {
+				basis[n++] = -(rowMap[-(j + 1)] + 1);
+			} else if (j < columnMap.length) {
+				basis[n++] = columnMap[j];
+			} else {
+				basis[n++] = originalSlack[slackRow[j - columnMap.length]];
+			}
+		}
+		for (int i = 0; i < numRows; i++) {
+			if (!rowActive[i]) {
+				basis[n++] = (originalSlack[i] != -1) ? originalSlack[i] : -(i + 1);
+			}
+		}
+		return basis;
+	}
+
+	/**
+	 * @return the number of rows removed by the given reduction
+	 */
+	public int getRemovedRows(Reduction reduction) {
+		return removedRows[reduction.ordinal()];
+	}
+
+	/**
+	 * @return the number of columns removed by the given reduction
+	 */
+	public int getRemovedColumns(Reduction reduction) {
+		return removedColumns[reduction.ordinal()];
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder strBuilder = new StringBuilder();
+		for (Reduction reduction : Reduction.values()) {
+			strBuilder.append(reduction);
+			strBuilder.append(": ");
+			strBuilder.append(getRemovedRows(reduction));
+			strBuilder.append(" rows, ");
+			strBuilder.append(getRemovedColumns(reduction));
+			strBuilder.append(" columns\n");
+		}
+		return strBuilder.toString();
+	}
+
+	private boolean removeFixedColumns() {
+		boolean changed = false;
+		for (int j = 0; j < numColumns; j++) {
+			if (columnActive[j] && lower[j] == upper[j]) {
+				removeColumn(j, lower[j]);
+				removedColumns[Reduction.FIXED_COLUMN.ordinal()]++;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Puts empty columns at their best bound. Columns that would have to go to
+	 * an infinite bound are kept, the solver decides whether the program is
+	 * unbounded.
+	 */
+	private boolean removeEmptyColumns() {
+		boolean changed = false;
+		for (int j = 0; j < numColumns; j++) {
+			if (!columnActive[j] || columnCount[j] > 0) {
+				continue;
+			}
+			double cost = (program.objGoal == ObjectiveGoal.MAX) ? -program.obj[j] : program.obj[j];
+			double best;
+			if (cost > 0) {
+				best = lower[j];
+			} else if (cost < 0) {
+				best = upper[j];
+			} else if (!Double.isInfinite(lower[j])) {
+				best = lower[j];
+			} else if (!Double.isInfinite(upper[j])) {
+				best = upper[j];
+			} else {
+				best = 0;
+			}
+			if (!Double.isInfinite(best)) {
+				removeColumn(j, best);
+				removedColumns[Reduction.EMPTY_COLUMN.ordinal()]++;
+				changed = true;
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes empty, singleton and redundant rows.
+	 */
+	private boolean removeRows() throws InfeasibleLPException {
+		boolean changed = false;
+		for (int i = 0; i < numRows; i++) {
+			if (!rowActive[i]) {
+				continue;
+			}
+			double tolerance = TOLERANCE * (1 + Math.abs(rhs[i]));
+			if (rowCount[i] == 0) {
+				if (!satisfies(i, 0, 0, tolerance)) {
+					throw new InfeasibleLPException();
+				}
+				removeRow(i);
+				removedRows[Reduction.EMPTY_ROW.ordinal()]++;
+				changed = true;
+			} else if (rowCount[i] == 1) {
+				tightenBounds(i);
+				removeRow(i);
+				removedRows[Reduction.SINGLETON_ROW.ordinal()]++;
+				changed = true;
+			} else {
+				// Range of the row activity within the variable bounds
+				double minActivity = 0;
+				double maxActivity = 0;
+				for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+					int j = rows.rowIndex(k);
+					if (columnActive[j]) {
+						double a = rows.value(k);
+						minActivity += (a > 0) ? a * lower[j] : a * upper[j];
+						maxActivity += (a > 0) ? a * upper[j] : a * lower[j];
+					}
+				}
+				if ((senses[i] != Sense.GEQ && minActivity > rhs[i] + tolerance)
+						|| (senses[i] != Sense.LEQ && maxActivity < rhs[i] - tolerance)) {
+					throw new InfeasibleLPException();
+				}
+				if (satisfies(i, minActivity, maxActivity, tolerance)) {
+					removeRow(i);
+					removedRows[Reduction.REDUNDANT_ROW.ordinal()]++;
+					changed = true;
+				}
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @return whether every activity in <code>[min, max]</code> satisfies row
+	 *         <code>i</code>
+	 */
+	private boolean satisfies(int i, double min, double max, double tolerance) {
+		switch (senses[i]) {
+		case LEQ:
+			return max <= rhs[i] + tolerance;
+		case GEQ:
+			return min >= rhs[i] - tolerance;
+		default:
+			return min >= rhs[i] - tolerance && max <= rhs[i] + tolerance;
+		}
+	}
+
+	/**
+	 * Turns the singleton row <code>i</code> into bounds of its variable.
+	 */
+	private void tightenBounds(int i) throws InfeasibleLPException {
+		int j = -1;
+		double a = 0;
+		for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+			if (columnActive[rows.rowIndex(k)]) {
+				j = rows.rowIndex(k);
+				a = rows.value(k);
+			}
+		}
+		double bound = rhs[i] / a;
+		Sense sense = senses[i];
+		if (a < 0 && sense != Sense.EQ) {
+			sense = (sense == Sense.LEQ) ? Sense.GEQ : Sense.LEQ;
+		}
+		if (sense != Sense.GEQ) {
+			upper[j] = Math.min(upper[j], bound);
+		}
+		if (sense != Sense.LEQ) {
+			lower[j] = Math.max(lower[j], bound);
+		}
+		if (lower[j] > upper[j]) {
+			if (lower[j] > upper[j] + TOLERANCE * (1 + Math.abs(bound))) {
+				throw new InfeasibleLPException();
+			}
+			upper[j] = lower[j];
+		}
+	}
+
+	/**
+	 * Merges rows that are multiples of an earlier row into that row, as long
+	 * as the combined restriction can be written as a single row.
+	 */
+	private boolean mergeDuplicateRows() throws InfeasibleLPException {
+		boolean changed = false;
+		Map<Integer, List<Integer>> patterns = new HashMap<Integer, List<Integer>>();
+		for (int i = 0; i < numRows; i++) {
+			if (!rowActive[i] || rowCount[i] < 2) {
+				continue;
+			}
+			int hash = 1;
+			for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+				if (columnActive[rows.rowIndex(k)]) {
+					hash = 31 * hash + rows.rowIndex(k);
+				}
+			}
+			List<Integer> candidates = patterns.get(hash);
+			if (candidates == null) {
+				candidates = new ArrayList<Integer>();
+				patterns.put(hash, candidates);
+			}
+
+			boolean merged = false;
+			for (int r : candidates) {
+				double ratio = ratio(r, i);
+				if (!Double.isNaN(ratio) && merge(r, i, ratio)) {
+					removeRow(i);
+					removedRows[Reduction.DUPLICATE_ROW.ordinal()]++;
+					changed = true;
+					merged = true;
+					break;
+				}
+			}
+			if (!merged) {
+				candidates.add(i);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * @return <code>lambda</code> if row <code>i</code> is <code>lambda</code>
+	 *         times row <code>r</code>, otherwise <code>NaN</code>
+	 */
+	private double ratio(int r, int i) {
+		double ratio = Double.NaN;
+		int kr = rows.columnStart(r);
+		int ki = rows.columnStart(i);
+		while (true) {
+			while (kr < rows.columnEnd(r) && !columnActive[rows.rowIndex(kr)]) {
+				kr++;
+			}
+			while (ki < rows.columnEnd(i) && !columnActive[rows.rowIndex(ki)]) {
+				ki++;
+			}
+			if (kr == rows.columnEnd(r) || ki == rows.columnEnd(i)) {
+				return (kr == rows.columnEnd(r) && ki == rows.columnEnd(i)) ? ratio : Double.NaN;
+			}
+			if (rows.rowIndex(kr) != rows.rowIndex(ki)) {
+				return Double.NaN;
+			}
+			double ar = rows.value(kr++);
+			double ai = rows.value(ki++);
+			if (Double.isNaN(ratio)) {
+				ratio = ai / ar;
+			} else if (Math.abs(ai - ratio * ar) > TOLERANCE * Math.abs(ai)) {
+				return Double.NaN;
+			}
+		}
+	}
+
+	/**
+	 * Intersects row <code>r</code> with row <code>i = ratio * r</code>.
+	 *
+	 * @return whether the intersection could be stored in row <code>r</code>
+	 */
+	private boolean merge(int r, int i, double ratio) throws InfeasibleLPException {
+		double lowerI = (senses[i] == Sense.LEQ) ? Double.NEGATIVE_INFINITY : rhs[i] / ratio;
+		double upperI = (senses[i] == Sense.GEQ) ? Double.POSITIVE_INFINITY : rhs[i] / ratio;
+		if (ratio < 0) {
+			double tmp = -lowerI;
+			lowerI = -upperI;
+			upperI = tmp;
+		}
+		double low = Math.max((senses[r] == Sense.LEQ) ? Double.NEGATIVE_INFINITY : rhs[r], lowerI);
+		double up = Math.min((senses[r] == Sense.GEQ) ? Double.POSITIVE_INFINITY : rhs[r], upperI);
+
+		double tolerance = TOLERANCE * (1 + Math.abs(rhs[r]));
+		if (low > up + tolerance) {
+			throw new InfeasibleLPException();
+		}
+		if (Double.isInfinite(low)) {
+			senses[r] = Sense.LEQ;
+			rhs[r] = up;
+		} else if (Double.isInfinite(up)) {
+			senses[r] = Sense.GEQ;
+			rhs[r] = low;
+		} else if (up - low <= tolerance) {
+			senses[r] = Sense.EQ;
+			rhs[r] = low;
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	private void removeColumn(int j, double fixedValue) {
+		columnActive[j] = false;
+		value[j] = fixedValue;
+		objOffset += program.obj[j] * fixedValue;
+		SparseMatrix columns = program.constraints;
+		for (int k = columns.columnStart(j); k < columns.columnEnd(j); k++) {
+			int i = columns.rowIndex(k);
+			if (rowActive[i]) {
+				rhs[i] -= columns.value(k) * fixedValue;
+				rowCount[i]--;
+			}
+		}
+	}
+
+	private void removeRow(int i) {
+		rowActive[i] = false;
+		for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+			int j = rows.rowIndex(k);
+			if (columnActive[j]) {
+				columnCount[j]--;
+			}
+		}
+	}
+
+	private LinearProgram buildReduced() {
+		int[] newRow = new int[numRows];
+		int numReducedRows = 0;
+		int numSlack = 0;
+		for (int i = 0; i < numRows; i++) {
+			newRow[i] = rowActive[i] ? numReducedRows++ : -1;
+			if (rowActive[i] && senses[i] != Sense.EQ) {
+				numSlack++;
+			}
+		}
+		rowMap = new int[numReducedRows];
+		slackRow = new int[numSlack];
+		numSlack = 0;
+		for (int i = 0; i < numRows; i++) {
+			if (rowActive[i]) {
+				rowMap[newRow[i]] = i;
+				if (senses[i] != Sense.EQ) {
+					slackRow[numSlack++] = i;
+				}
+			}
+		}
+		int numReducedColumns = 0;
+		for (int j = 0; j < numColumns; j++) {
+			if (columnActive[j]) {
+				numReducedColumns++;
+			}
+		}
+		columnMap = new int[numReducedColumns];
+		numReducedColumns = 0;
+		for (int j = 0; j < numColumns; j++) {
+			if (columnActive[j]) {
+				columnMap[numReducedColumns++] = j;
+			}
+		}
+
+		SparseMatrix constraints = program.constraints;
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(rowMap.length, columnMap.length,
+				constraints.getNumNonZeros());
+		double[] reducedObj = new double[columnMap.length];
+		double[] reducedLower = new double[columnMap.length];
+		double[] reducedUpper = new double[columnMap.length];
+		String[] reducedVarName = new String[columnMap.length];
+		for (int c = 0; c < columnMap.length; c++) {
+			int j = columnMap[c];
+			for (int k = constraints.columnStart(j); k < constraints.columnEnd(j); k++) {
+				int i = constraints.rowIndex(k);
+				if (rowActive[i]) {
+					builder.add(newRow[i], c, constraints.value(k));
+				}
+			}
+			reducedObj[c] = program.obj[j];
+			reducedLower[c] = lower[j];
+			reducedUpper[c] = upper[j];
+			reducedVarName[c] = program.varName[j];
+		}
+		double[] reducedRhs = new double[rowMap.length];
+		Sense[] reducedSenses = new Sense[rowMap.length];
+		String[] reducedConstraintNames = new String[rowMap.length];
+		for (int r = 0; r < rowMap.length; r++) {
+			int i = rowMap[r];
+			reducedRhs[r] = rhs[i];
+			reducedSenses[r] = senses[i];
+			reducedConstraintNames[r] = program.constraintNames[i];
+		}
+
+		LinearProgram reduced = new LinearProgram(builder.build(), reducedRhs, reducedSenses, reducedLower, reducedUpper,
+				reducedObj, program.objGoal, reducedConstraintNames, reducedVarName);
+		reduced.objConstant = program.objConstant + objOffset;
+		return reduced;
+	}
+}
@@ -0,0 +1,40 @@
+package de.tu_berlin.coga.jimplex;
+
+import de.tu_berlin.coga.jimplex.SolverStatistics.Phase;
+
+/**
+ * Receives the progress of a {@link RevisedSimplex} solve.
+ *
+ * The listener is called from the thread running the solve, between the
+ * choice of a pivot and the basis change. Iterations that end the solve
+ * because the program is optimal, unbounded or infeasible are not reported.
+ * The listener should return quickly and must not modify the program being
+ * solved.
+ *
+ * @see RevisedSimplex#setProgressListener(ProgressListener, int)
+ */
+public interface ProgressListener {
+
+	/**
+	 * Reports an iteration. Columns are numbered like the basis returned by
+	 * {@link RevisedSimplex#solve()}: variables of the program from 0 on,
+	 * artificial variables as <code>-(row + 1)</code>.
+	 *
+	 * @param phase
+	 *          the running phase
+	 * @param iteration
+	 *          the number of the iteration within the solve, starting with 1
+	 * @param objective
+	 *          the objective value of the phase at the current solution; in
+	 *          Phase I the sum of the artificial infeasibilities
+	 * @param infeasibility
+	 *          the sum of the bound violations of the current solution,
+	 *          including the artificial variables
+	 * @param entering
+	 *          the entering column
+	 * @param leaving
+	 *          the leaving column, equal to <code>entering</code> if the
+	 *          entering variable only moves to its opposite bound
+	 */
+	void iteration(Phase phase, int iteration, double objective, double infeasibility, int entering, int leaving);
+}
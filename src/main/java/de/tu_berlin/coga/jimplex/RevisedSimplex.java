@@ -1,315 +1,1051 @@
-package de.tu_berlin.coga.jimplex;
-
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.text.ParseException;
-import java.util.Arrays;
-
-import org.ejml.data.DenseMatrix64F;
-import org.ejml.data.RowD1Matrix64F;
-import org.ejml.ops.CommonOps;
-
-import de.tu_berlin.coga.jimplex.LinearProgram;
-import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
-import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
-import de.tu_berlin.coga.jimplex.exceptions.UnboundedLPException;
-
-public class RevisedSimplex {
-	private LinearProgram program;
-
-	public RevisedSimplex(LinearProgram program) {
-		this.program = program;
-		// TODO: Check that it is normalized
-	}
-
-	public int[] solve() throws InfeasibleLPException, UnboundedLPException {
-		int numVariables = program.numVariables;
-		int numConstraints = program.constraints.length;
-		double[][] oldConstraints = program.constraints;
-		double[] oldCosts = program.obj;
-		double[] oldLBounds = program.lowerBound;
-		double[] oldUBounds = program.upperBound;
-
-		double[][] newConstraints = new double[numConstraints][numVariables + numConstraints];
-
-		// Write identity matrix
-		for (int i = 0; i < numConstraints; i++) {
-			newConstraints[i][i] = 1;
-		}
-
-		// Copy old constraints
-		for (int i = 0; i < numConstraints; i++) {
-			for (int j = 0; j < numVariables; j++) {
-				newConstraints[i][numConstraints + j] = program.constraints[i][j];
-			}
-		}
-
-		double[] newCosts = new double[numVariables + numConstraints];
-		for (int i = 0; i < numConstraints; i++) {
-			newCosts[i] = 1;
-		}
-
-		double[] newLBounds = new double[numVariables + numConstraints];
-		double[] newUBounds = new double[numVariables + numConstraints];
-		for (int i = 0; i < numConstraints; i++) {
-			newUBounds[i] = Double.POSITIVE_INFINITY;
-		}
-		System.arraycopy(oldLBounds, 0, newLBounds, numConstraints, numVariables);
-		System.arraycopy(oldUBounds, 0, newUBounds, numConstraints, numVariables);
-
-		// Find base solution
-		program.constraints = newConstraints;
-		program.obj = newCosts;
-		program.numVariables = numVariables + numConstraints;
-		program.lowerBound = newLBounds;
-		program.upperBound = newUBounds;
-		int[] B = new int[numConstraints];
-		for (int i = 0; i < B.length; i++) {
-			B[i] = i;
-		}
-		B = solve(B);
-
-		if (!isFeasible(B)) {
-			throw new InfeasibleLPException();
-		}
-
-		// Optimize original program using that solution
-		program.constraints = oldConstraints;
-		program.obj = oldCosts;
-		program.numVariables = numVariables;
-		program.lowerBound = oldLBounds;
-		program.upperBound = oldUBounds;
-		for (int i = 0; i < B.length; i++) {
-			B[i] = B[i] - numConstraints;
-		}
-		B = solve(B);
-
-		return B;
-	}
-
-	public int[] solve(int[] B) throws UnboundedLPException {
-		double[][] A = program.constraints;
-		double[] c = program.obj;
-		DenseMatrix64F b = convertColumnVector(program.rightHandSide);
-
-		int rank = B.length;
-		int numVariables = program.numVariables;
-		int numNonBaseColumns = numVariables - rank;
-
-		int iterCount = 0;
-
-		while (true) {
-			System.out.println("Iteration: " + ++iterCount);
-			double[] variables = new double[program.numVariables];
-			DenseMatrix64F A_Binv = createInvBase(A, B);
-			DenseMatrix64F b_tilde = new DenseMatrix64F(rank, 1);
-			CommonOps.mult(A_Binv, b, b_tilde);
-
-			DenseMatrix64F pi_trans = new DenseMatrix64F(1, rank);
-			CommonOps.mult(getBaseCosts(c, B), A_Binv, pi_trans);
-
-			int[] nonBaseColumns = calculateNonBaseColumns(numVariables, B);
-			// Calculate reduced costs
-			double[] c_tilde = new double[numNonBaseColumns];
-			for (int i = 0; i < numNonBaseColumns; i++) {
-				int columnIndex = nonBaseColumns[i];
-				double[] column = getColumn(A, columnIndex);
-				double sum = 0;
-
-				for (int j = 0; j < column.length; j++) {
-					sum += pi_trans.get(0, j) * column[j];
-				}
-
-				c_tilde[i] = c[columnIndex] - sum;
-			}
-
-			// Check termination
-			boolean allPositive = true;
-			for (int i = 0; i < c_tilde.length; i++) {
-				if (c_tilde[i] < 0) {
-					allPositive = false;
-					break;
-				}
-			}
-			if (allPositive) {
-				// Optimal solution
-				StringBuilder strBld = new StringBuilder();
-
-				for (int i = 0; i < B.length; i++) {
-					double var = b_tilde.get(i);
-					if (var <= 0.0) {
-						var = 0;
-					}
-					variables[B[i]] = var;
-					// strBld.append(program.varName[B[i]]);
-					// strBld.append(": ");
-					strBld.append(var);
-					strBld.append("\n");
-				}
-				program.variables = variables;
-				System.out.println(strBld.toString());
-
-				return B;
-			}
-
-			// Choose pivot (min index rule)
-			//   int index = -1;
-			//   for (int i = 0; i < c_tilde.length; i++) {
-			//    if (c_tilde[i] < 0) {
-			//     index = i;
-			//     break;
-			//    }
-			//   }
-			// Choose column with minimal cost
-			int index = -1;
-			double min = Double.POSITIVE_INFINITY;
-			for (int i = 0; i < c_tilde.length; i++) {
-				if (c_tilde[i] < min) {
-					min = c_tilde[i];
-					index = i;
-				}
-			}
-			int pivotColumn = nonBaseColumns[index];
-
-			// Generate Pivot Column
-			double[] column = getColumn(A, pivotColumn);
-			DenseMatrix64F entering_column = convertColumnVector(column);
-			DenseMatrix64F weight_vector = new DenseMatrix64F(rank, 1);
-			CommonOps.mult(A_Binv, entering_column, weight_vector);
-
-			// Find pivot element
-			double min_value = Double.POSITIVE_INFINITY;
-			int min_index = -1;
-			for (int i = 0; i < weight_vector.getNumRows(); i++) {
-				double x_is = weight_vector.get(i, 0);
-				if (x_is > 0) {
-					double value = b_tilde.get(i, 0) / x_is;
-					if (value < min_value) {
-						min_value = value;
-						min_index = i;
-					}
-				}
-			}
-
-			// Check if problem is unbound
-			if (min_value == Double.POSITIVE_INFINITY) {
-				throw new UnboundedLPException();
-			}
-
-			int k = B[min_index];
-			B[min_index] = pivotColumn;
-			for (int i = 0; i < numNonBaseColumns; i++) {
-				if (nonBaseColumns[i] == pivotColumn) {
-					nonBaseColumns[i] = k;
-					break;
-				}
-			}
-			// System.out.println(B[0] + ", " + B[1]);
-			// System.out.println(b_tilde);
-		}
-	}
-
-	private boolean isFeasible(int[] B) {
-		boolean feasible = true;
-		for (int i : B) {
-			if (i < B.length) {
-				return false;
-			}
-		}
-
-		return feasible;
-	}
-
-	private double[] getColumn(double[][] A, int columnIndex) {
-		double[] column = new double[A.length];
-
-		for (int i = 0; i < column.length; i++) {
-			column[i] = A[i][columnIndex];
-		}
-
-		return column;
-	}
-
-	private int[] calculateNonBaseColumns(int numVariables, int[] b) {
-		int[] tmp = new int[numVariables];
-		for (int i = 0; i < b.length; i++) {
-			tmp[b[i]] = 1;
-		}
-
-		int[] nonBaseColumns = new int[numVariables - b.length];
-		int j = 0;
-		for (int i = 0; i < numVariables; i++) {
-			if (tmp[i] == 0) {
-				nonBaseColumns[j] = i;
-				j++;
-			}
-		}
-
-		return nonBaseColumns;
-	}
-
-	private RowD1Matrix64F getBaseCosts(double[] c, int[] B) {
-		double[] c_base = new double[B.length];
-		for (int i = 0; i < B.length; i++) {
-			c_base[i] = c[B[i]];
-		}
-
-		return convertRowVector(c_base);
-	}
-
-	private DenseMatrix64F convertRowVector(double[] vector) {
-		DenseMatrix64F vectorMatrix = new DenseMatrix64F(1, vector.length);
-		for (int i = 0; i < vector.length; i++) {
-			vectorMatrix.set(0, i, vector[i]);
-		}
-
-		return vectorMatrix;
-	}
-
-	private DenseMatrix64F convertColumnVector(double[] vector) {
-		DenseMatrix64F vectorMatrix = new DenseMatrix64F(vector.length, 1);
-		for (int i = 0; i < vector.length; i++) {
-			vectorMatrix.set(i, 0, vector[i]);
-		}
-
-		return vectorMatrix;
-	}
-
-	private DenseMatrix64F createInvBase(double[][] A, int[] B) {
-		int rows = A.length;
-		double[][] A_B = new double[rows][B.length];
-		for (int i = 0; i < B.length; i++) {
-			for (int j = 0; j < rows; j++) {
-				A_B[j][i] = A[j][B[i]];
-			}
-		}
-
-		DenseMatrix64F matrix = new DenseMatrix64F(A_B);
-		CommonOps.invert(matrix);
-		return matrix;
-	}
-
-	public static void main(String[] args) throws FileNotFoundException, ParseException, IOException,
-			InfeasibleLPException, UnboundedLPException {
-		String filePath = args[0];
-		LinearProgram program = new LinearProgram(filePath);
-		boolean isMax = (program.objGoal == ObjectiveGoal.MAX) ? true : false;
-		program.normalize();
-		System.out.println(program);
-		boolean isConverted = isMax && (program.objGoal == ObjectiveGoal.MIN);
-
-		RevisedSimplex solver = new RevisedSimplex(program);
-		int[] opt = solver.solve();
-		Arrays.sort(opt);
-
-		double value = program.getObjectiveValue(opt);
-		if (isConverted) {
-			value *= -1;
-		}
-		System.out.println("Objective: " + value);
-
-		for (int i : opt) {
-			System.out.println(program.varName[i] + ": " + program.variables[i]);
-		}
-	}
-}
+package de.tu_berlin.coga.jimplex;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Preconditions;
+
+import de.tu_berlin.coga.jimplex.LinearProgram;
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.SolverStatistics.Phase;
+import de.tu_berlin.coga.jimplex.SolverStatistics.Step;
+import de.tu_berlin.coga.jimplex.basis.BasisFactorization;
+import de.tu_berlin.coga.jimplex.basis.LUFactorization;
+import de.tu_berlin.coga.jimplex.pricing.DantzigPricing;
+import de.tu_berlin.coga.jimplex.pricing.PricingContext;
+import de.tu_berlin.coga.jimplex.pricing.PricingStrategy;
+import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
+import de.tu_berlin.coga.jimplex.exceptions.SingularBasisException;
+import de.tu_berlin.coga.jimplex.exceptions.UnboundedLPException;
+
+/**
+ * Bounded primal revised simplex method.
+ *
+ * Variable bounds are handled natively: a nonbasic variable rests at its lower
+ * or upper bound (or at zero if it is free), the ratio test respects both
+ * bounds of the basic variables and lets the entering variable flip to its
+ * opposite bound without a basis change. The basis therefore always has one
+ * column per constraint of the program.
+ *
+ * All working vectors of a solve are allocated once by its
+ * {@link SolverWorkspace} and updated in place. Once the pools of the
+ * {@link LUFactorization} have grown to the size of the program, which takes
+ * at most one solve, the iterations do not allocate. Tracing and parallel
+ * pricing are exceptions.
+ */
+public class RevisedSimplex {
+	private static final Logger LOG = Logger.getLogger(RevisedSimplex.class);
+
+	/** Reduced costs above this value count as non-negative. */
+	private static final double OPTIMALITY_TOLERANCE = 1e-9;
+	/** Bound violations up to this value count as feasible. */
+	private static final double FEASIBILITY_TOLERANCE = 1e-9;
+	/** Entries of the entering column below this value are not pivots. */
+	private static final double PIVOT_TOLERANCE = 1e-9;
+	/** Drift of incrementally updated values above this value is logged. */
+	private static final double DRIFT_TOLERANCE = 1e-6;
+
+	static final int BASIC = 0;
+	static final int AT_LOWER = 1;
+	static final int AT_UPPER = 2;
+	static final int AT_ZERO = 3;
+
+	private LinearProgram program;
+	private BasisFactorization basis;
+	private PricingStrategy pricing;
+	private boolean scaling = true;
+	private boolean timing;
+	private int iterations;
+	private SolverStatistics statistics = new SolverStatistics(false);
+	private ProgressListener listener;
+	private int listenerInterval;
+	/** Pivots of the running solve, the iterations the listener may see */
+	private int pivots;
+	private boolean storeSolution;
+	private boolean incremental;
+
+	// State of the running solve
+	private SolverWorkspace work;
+	private final Pricer pricer = new Pricer();
+
+	/**
+	 * Creates a solver for a normalized program. By default the solver only
+	 * reads the program and keeps the solution to itself (see
+	 * {@link #getSolution()}), so solvers that run at the same time may share
+	 * a program. A solver itself is not thread-safe.
+	 */
+	public RevisedSimplex(LinearProgram program) {
+		this.program = program;
+		this.basis = new LUFactorization();
+		this.pricing = new DantzigPricing();
+		// TODO: Check that it is normalized
+	}
+
+	/**
+	 * Sets the representation of the basis matrix used by the following
+	 * solves. The default is an {@link LUFactorization}.
+	 */
+	public void setBasisFactorization(BasisFactorization basis) {
+		this.basis = basis;
+	}
+
+	/**
+	 * Enables or disables scaling of the constraint matrix by {@link Scaling}
+	 * in the following solves. Scaling only affects the working copy of the
+	 * solver, the solution is stored unscaled. It is enabled by default.
+	 */
+	public void setScaling(boolean scaling) {
+		this.scaling = scaling;
+	}
+
+	/**
+	 * Enables or disables the timers of the {@link SolverStatistics} in the
+	 * following solves. They are disabled by default, the counters are always
+	 * collected.
+	 */
+	public void setTiming(boolean timing) {
+		this.timing = timing;
+	}
+
+	/**
+	 * Reports every <code>interval</code>-th pivot of the following solves to
+	 * <code>listener</code>. Iterations that end a phase do not pivot and are
+	 * not counted, so the reported iteration numbers need not be multiples of
+	 * the interval.
+	 *
+	 * @param listener
+	 *          the listener, or <code>null</code> to report nothing
+	 */
+	public void setProgressListener(ProgressListener listener, int interval) {
+		Preconditions.checkArgument(interval > 0, "interval must be positive");
+		this.listener = listener;
+		this.listenerInterval = interval;
+	}
+
+	/**
+	 * Enables or disables incremental updates in the primal simplex of the
+	 * following solves. Instead of recomputing the values of the basic
+	 * variables, the duals and the reduced costs in every iteration, they are
+	 * corrected after each pivot by the entering column and the pivot row. At
+	 * every refactorization and before optimality is declared they are
+	 * recomputed from scratch, the largest difference is reported by
+	 * {@link SolverStatistics#getMaxDrift()}. Disabled by default.
+	 */
+	public void setIncrementalUpdates(boolean incremental) {
+		this.incremental = incremental;
+	}
+
+	/**
+	 * Enables or disables storing the solution of the following solves in the
+	 * variables of the program. It is disabled by default. Solvers that store
+	 * the solution must not share the program with other threads, as they would
+	 * overwrite each other's solution.
+	 */
+	public void setStoreSolution(boolean storeSolution) {
+		this.storeSolution = storeSolution;
+	}
+
+	/**
+	 * Sets the rule that chooses the entering column in the following solves.
+	 * The default is {@link DantzigPricing}.
+	 */
+	public void setPricingStrategy(PricingStrategy pricing) {
+		this.pricing = pricing;
+	}
+
+	/**
+	 * Solves the program with the two-phase method. Phase I starts from a basis
+	 * of artificial variables, one per row, and minimises their absolute sum.
+	 * Phase II keeps the artificial variables fixed at zero.
+	 *
+	 * @return the optimal basis. Rows whose artificial variable could not be
+	 *         driven out of the basis (redundant rows) are reported as
+	 *         <code>-(row + 1)</code>.
+	 */
+	public int[] solve() throws InfeasibleLPException, UnboundedLPException {
+		setUp();
+		int numConstraints = work.B.length;
+		double[] cost = work.cost;
+		double[] lower = work.lower;
+		double[] upper = work.upper;
+		double[] x = work.x;
+
+		// Put the original variables at a bound and let the artificial variables
+		// absorb the residual b - A x_N with the appropriate sign
+		work.initNonBasic(numConstraints);
+		int[] artificial = new int[numConstraints];
+		for (int i = 0; i < numConstraints; i++) {
+			artificial[i] = i;
+		}
+		work.setBasis(artificial);
+		double[] residual = Arrays.copyOf(work.b, numConstraints);
+		work.subtractNonBasicActivity(residual);
+		double[] objective = Arrays.copyOfRange(cost, numConstraints, cost.length);
+		Arrays.fill(cost, 0);
+		for (int i = 0; i < numConstraints; i++) {
+			if (residual[i] >= 0) {
+				cost[i] = 1;
+				upper[i] = Double.POSITIVE_INFINITY;
+			} else {
+				cost[i] = -1;
+				lower[i] = Double.NEGATIVE_INFINITY;
+			}
+		}
+
+		// Phase I: minimise the sum of artificial infeasibilities
+		iterations = 0;
+		primal(Phase.PHASE_ONE);
+		for (int i = 0; i < numConstraints; i++) {
+			if (Math.abs(x[i]) > FEASIBILITY_TOLERANCE * (1 + Math.abs(work.b[i]))) {
+				throw new InfeasibleLPException();
+			}
+		}
+
+		// Phase II: fix the artificial variables at zero and optimise the
+		// original costs from the feasible basis
+		for (int i = 0; i < numConstraints; i++) {
+			cost[i] = 0;
+			lower[i] = 0;
+			upper[i] = 0;
+			if (work.status[i] != BASIC) {
+				work.status[i] = AT_LOWER;
+				x[i] = 0;
+			}
+		}
+		System.arraycopy(objective, 0, cost, numConstraints, objective.length);
+		primal(Phase.PHASE_TWO);
+		driveOutArtificials(numConstraints);
+
+		storeSolution();
+		return work.exportBasis();
+	}
+
+	/**
+	 * Re-optimises the program with the dual simplex method, starting from a
+	 * basis returned by an earlier solve. The basis must be dual feasible for
+	 * the current costs, which is the case for an optimal basis after changes to
+	 * the right-hand side or to the bounds. Nonbasic variables are put at the
+	 * bound that matches the sign of their reduced cost.
+	 *
+	 * @param B
+	 *          a dual feasible basis in the format returned by {@link #solve()},
+	 *          it is repaired as described for {@link #solve(int[])}
+	 * @return the optimal basis in the same format
+	 * @throws InfeasibleLPException
+	 *           if the program has no feasible solution
+	 * @throws IllegalArgumentException
+	 *           if the basis is not dual feasible
+	 */
+	public int[] solveDual(int[] B) throws InfeasibleLPException {
+		setUp();
+		int numConstraints = work.B.length;
+		loadBasis(B);
+
+		iterations = 0;
+		dual();
+		driveOutArtificials(numConstraints);
+		storeSolution();
+		return work.exportBasis();
+	}
+
+	/**
+	 * Builds the workspace of a solve.
+	 */
+	private void setUp() throws InfeasibleLPException {
+		statistics = new SolverStatistics(timing);
+		long start = statistics.start();
+		pivots = 0;
+		work = new SolverWorkspace(program, scaling, basis);
+		statistics.workspace(work.bytes());
+		statistics.stop(Step.SETUP, start);
+	}
+
+	/**
+	 * Counts a pivot and passes the current iteration to the listener if it is
+	 * due.
+	 */
+	private void report(Phase phase, int entering, int leaving) {
+		pivots++;
+		if (listener != null && pivots % listenerInterval == 0) {
+			listener.iteration(phase, iterations, work.objective(), work.infeasibility(), work.exportColumn(entering),
+					work.exportColumn(leaving));
+		}
+	}
+
+	/**
+	 * Solves the program starting from a given basis, e.g. the optimal basis of
+	 * a previous solve of the same or a slightly modified program. The basis
+	 * is validated and repaired first: entries that are out of range or
+	 * duplicated are dropped, missing entries are filled up and columns that
+	 * make the basis matrix singular are replaced by the slack (or artificial)
+	 * column of a row that has no pivot.
+	 *
+	 * With the nonbasic variables at their bounds, a primal feasible basis is
+	 * optimised directly by Phase II and a dual feasible basis by the dual
+	 * simplex. Otherwise the program is solved from scratch by {@link #solve()}.
+	 *
+	 * @param B
+	 *          a basis in the format returned by {@link #solve()}, of any
+	 *          length
+	 * @return the optimal basis in the same format
+	 */
+	public int[] solve(int[] B) throws InfeasibleLPException, UnboundedLPException {
+		setUp();
+		int numConstraints = work.B.length;
+		loadBasis(B);
+
+		iterations = 0;
+		factorize();
+		computePrimal(work.basicValues);
+		if (isPrimalFeasible()) {
+			primal(Phase.PHASE_TWO);
+		} else if (isDualFeasible()) {
+			dual();
+		} else {
+			return solve();
+		}
+		driveOutArtificials(numConstraints);
+		storeSolution();
+		return work.exportBasis();
+	}
+
+	/**
+	 * Sets up the nonbasic variables of the working copy and a repaired version
+	 * of the given basis. The artificial variables keep their bounds of zero.
+	 */
+	private void loadBasis(int[] given) {
+		int numConstraints = work.B.length;
+		work.initNonBasic(numConstraints);
+		for (int i = 0; i < numConstraints; i++) {
+			work.status[i] = AT_LOWER;
+		}
+		work.setBasis(repairBasis(given));
+	}
+
+	/**
+	 * Translates a basis in the format of {@link #solve()} to columns of the
+	 * working copy and turns it into a nonsingular basis. The factorization used
+	 * for the check is an {@link LUFactorization} regardless of the configured
+	 * representation, since it reports which columns and rows are dependent.
+	 */
+	private int[] repairBasis(int[] given) {
+		SparseMatrix A = work.A;
+		int numConstraints = A.getNumRows();
+		int numColumns = A.getNumColumns();
+		int[] repaired = new int[numConstraints];
+		boolean[] used = new boolean[numColumns];
+		int size = 0;
+		for (int j : given) {
+			int column = (j < 0) ? -(j + 1) : j + numConstraints;
+			boolean valid = (j < 0) ? column < numConstraints : column < numColumns;
+			if (valid && !used[column] && size < numConstraints) {
+				used[column] = true;
+				repaired[size++] = column;
+			}
+		}
+		// First singleton column of every row, usually its slack variable
+		int[] slack = new int[numConstraints];
+		Arrays.fill(slack, -1);
+		for (int j = numColumns - 1; j >= numConstraints; j--) {
+			if (A.columnEnd(j) - A.columnStart(j) == 1) {
+				slack[A.rowIndex(A.columnStart(j))] = j;
+			}
+		}
+
+		// Fill up with the slack or artificial columns of rows that have none in
+		// the basis yet, bad choices are replaced below
+		for (int i = 0; size < numConstraints; i++) {
+			if (!used[i] && (slack[i] == -1 || !used[slack[i]])) {
+				int column = (slack[i] != -1) ? slack[i] : i;
+				used[column] = true;
+				repaired[size++] = column;
+			}
+		}
+
+		LUFactorization check = new LUFactorization();
+		for (int attempt = 0; attempt <= numConstraints; attempt++) {
+			try {
+				check.factorize(A, repaired);
+				return repaired;
+			} catch (SingularBasisException e) {
+				int[] positions = e.getPositions();
+				int[] rows = e.getRows();
+				for (int position : positions) {
+					used[repaired[position]] = false;
+				}
+				for (int k = 0; k < positions.length; k++) {
+					int row = rows[k];
+					int column = (slack[row] != -1 && !used[slack[row]]) ? slack[row] : row;
+					used[column] = true;
+					repaired[positions[k]] = column;
+				}
+			}
+		}
+		// Numerical trouble, the artificial basis is always regular
+		for (int i = 0; i < numConstraints; i++) {
+			repaired[i] = i;
+		}
+		return repaired;
+	}
+
+	/**
+	 * @return whether all basic variables are within their bounds
+	 */
+	private boolean isPrimalFeasible() {
+		double[] x = work.x;
+		for (int j : work.B) {
+			if (x[j] < work.lower[j] - FEASIBILITY_TOLERANCE || x[j] > work.upper[j] + FEASIBILITY_TOLERANCE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether every nonbasic variable can be put at a bound that matches
+	 * the sign of its reduced cost.
+	 */
+	private boolean isDualFeasible() {
+		double[] lower = work.lower;
+		double[] upper = work.upper;
+		computeDuals();
+		for (int j : work.nonBaseColumns) {
+			if (lower[j] == upper[j]) {
+				continue;
+			}
+			double reducedCost = work.cost[j] - work.A.dotColumn(j, work.pi);
+			if (reducedCost > OPTIMALITY_TOLERANCE && Double.isInfinite(lower[j])) {
+				return false;
+			}
+			if (reducedCost < -OPTIMALITY_TOLERANCE && Double.isInfinite(upper[j])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Runs primal simplex iterations on the current state until no column is
+	 * attractive any more.
+	 */
+	private void primal(Phase phase) throws UnboundedLPException {
+		SparseMatrix A = work.A;
+		double[] cost = work.cost;
+		double[] lower = work.lower;
+		double[] upper = work.upper;
+		double[] x = work.x;
+		int[] status = work.status;
+		int[] B = work.B;
+		double[] pi = work.pi;
+		double[] reducedCosts = work.reducedCost;
+		double[] b_tilde = work.basicValues;
+		double[] weight_vector = work.alpha;
+		double[] pivotRow = (incremental || pricing.needsPivotRow()) ? work.pivotRow : null;
+		long phaseStart = statistics.start();
+		try {
+			factorize();
+			if (incremental) {
+				computePrimal(b_tilde);
+				computeDuals();
+				computeReducedCosts();
+			}
+			long start = statistics.start();
+			pricing.init(pricer);
+			statistics.stop(Step.PRICING, start);
+			boolean trace = LOG.isTraceEnabled();
+
+			while (true) {
+				++iterations;
+				statistics.iteration(phase);
+				if (!incremental) {
+					computePrimal(b_tilde);
+					computeDuals();
+				}
+
+				start = statistics.start();
+				int pivotColumn = pricing.selectEntering(pricer);
+				statistics.stop(Step.PRICING, start);
+				if (pivotColumn == -1 && incremental) {
+					// Confirm optimality with fresh values
+					checkDrift(phase);
+					start = statistics.start();
+					pivotColumn = pricing.selectEntering(pricer);
+					statistics.stop(Step.PRICING, start);
+				}
+				if (pivotColumn == -1) {
+					// Optimal solution
+					if (LOG.isDebugEnabled()) {
+						LOG.debug(phase + " optimal after " + statistics.getIterations(phase) + " iterations, objective "
+								+ work.objective());
+					}
+					return;
+				}
+				double reducedCost = incremental ? reducedCosts[pivotColumn] : cost[pivotColumn]
+						- A.dotColumn(pivotColumn, pi);
+				int direction = (reducedCost < 0) ? 1 : -1;
+
+				// Generate Pivot Column
+				start = statistics.start();
+				A.copyColumn(pivotColumn, weight_vector);
+				basis.ftran(weight_vector);
+				statistics.stop(Step.FTRAN, start);
+
+				start = statistics.start();
+				int min_index = ratioTest(weight_vector, direction, B, x, lower, upper);
+				double min_value = Double.POSITIVE_INFINITY;
+				if (min_index != -1) {
+					int j = B[min_index];
+					min_value = Math.max(blockingStep(direction * weight_vector[min_index], x[j], lower[j], upper[j], 0), 0);
+				}
+				statistics.stop(Step.RATIO_TEST, start);
+
+				// The entering variable may reach its opposite bound first
+				double flip = upper[pivotColumn] - lower[pivotColumn];
+				boolean isFlip = !Double.isInfinite(flip) && flip <= min_value;
+				if (isFlip || min_index != -1) {
+					int leaving = isFlip ? pivotColumn : B[min_index];
+					if (trace) {
+						LOG.trace(phase + " iteration " + iterations + ": objective " + work.objective() + ", entering "
+								+ work.exportColumn(pivotColumn) + ", leaving " + work.exportColumn(leaving));
+					}
+					report(phase, pivotColumn, leaving);
+				}
+				if (isFlip) {
+					if (incremental) {
+						for (int i = 0; i < B.length; i++) {
+							x[B[i]] -= direction * flip * weight_vector[i];
+						}
+					}
+					x[pivotColumn] = (direction > 0) ? upper[pivotColumn] : lower[pivotColumn];
+					status[pivotColumn] = (direction > 0) ? AT_UPPER : AT_LOWER;
+					statistics.boundFlips++;
+					continue;
+				}
+
+				// Check if problem is unbound
+				if (min_index == -1) {
+					throw new UnboundedLPException();
+				}
+				if (min_value <= FEASIBILITY_TOLERANCE) {
+					statistics.degeneratePivots++;
+				}
+
+				if (pivotRow != null) {
+					computePivotRow(min_index, pivotRow);
+				}
+				start = statistics.start();
+				pricing.update(pricer, pivotColumn, min_index, weight_vector, pivotRow);
+				statistics.stop(Step.PRICING, start);
+
+				int k = B[min_index];
+				if (incremental) {
+					// x_B -= theta alpha, pi += (d_q / alpha_r) rho_r and
+					// d_j -= (d_q / alpha_r) alpha_rj
+					double step = direction * min_value;
+					for (int i = 0; i < B.length; i++) {
+						x[B[i]] -= step * weight_vector[i];
+					}
+					x[pivotColumn] += step;
+					double ratio = reducedCost / weight_vector[min_index];
+					double[] rho = work.rho;
+					for (int i = 0; i < pi.length; i++) {
+						pi[i] += ratio * rho[i];
+					}
+					for (int j : work.nonBaseColumns) {
+						reducedCosts[j] -= ratio * pivotRow[j];
+					}
+					reducedCosts[pivotColumn] = 0;
+					reducedCosts[k] = -ratio;
+				}
+				if (direction * weight_vector[min_index] > 0) {
+					status[k] = AT_LOWER;
+					x[k] = lower[k];
+				} else {
+					status[k] = AT_UPPER;
+					x[k] = upper[k];
+				}
+				work.exchange(min_index, pivotColumn);
+				if (update(min_index, pivotColumn) && incremental) {
+					checkDrift(phase);
+				}
+			}
+		} finally {
+			statistics.stop(phase, phaseStart);
+		}
+	}
+
+	/**
+	 * Finds the leaving variable of a primal iteration by a Harris ratio test:
+	 * first the largest step that keeps all basic variables within their
+	 * relaxed bounds, then the largest pivot among the rows that block before
+	 * that step.
+	 *
+	 * @param alpha
+	 *          the entering column transformed by the basis, indexed by position
+	 * @param direction
+	 *          1 if the entering variable increases, -1 if it decreases
+	 * @return the basis position of the leaving variable, or -1 if no basic
+	 *         variable blocks
+	 */
+	static int ratioTest(double[] alpha, int direction, int[] B, double[] x, double[] lower, double[] upper) {
+		int rank = B.length;
+		double max_step = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < rank; i++) {
+			int j = B[i];
+			double step = blockingStep(direction * alpha[i], x[j], lower[j], upper[j], FEASIBILITY_TOLERANCE);
+			if (step < max_step) {
+				max_step = step;
+			}
+		}
+		int min_index = -1;
+		double max_pivot = 0;
+		for (int i = 0; i < rank; i++) {
+			int j = B[i];
+			double step = blockingStep(direction * alpha[i], x[j], lower[j], upper[j], 0);
+			if (step <= max_step && Math.abs(alpha[i]) > max_pivot) {
+				max_pivot = Math.abs(alpha[i]);
+				min_index = i;
+			}
+		}
+		return min_index;
+	}
+
+	/**
+	 * @return the step after which a basic variable that decreases by
+	 *         <code>alpha</code> per unit reaches its bound relaxed by
+	 *         <code>tolerance</code>, or <code>NaN</code> if it does not block
+	 */
+	private static double blockingStep(double alpha, double x, double lower, double upper, double tolerance) {
+		if (alpha > PIVOT_TOLERANCE && !Double.isInfinite(lower)) {
+			return (x - lower + tolerance) / alpha;
+		} else if (alpha < -PIVOT_TOLERANCE && !Double.isInfinite(upper)) {
+			return (upper - x + tolerance) / -alpha;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Runs dual simplex iterations on the current state until all basic
+	 * variables are within their bounds. The leaving row is the one with the
+	 * largest bound violation, the entering column is chosen by a Harris ratio
+	 * test on the reduced costs so that the basis stays dual feasible. Boxed
+	 * nonbasic variables are moved to the bound that matches the sign of their
+	 * reduced cost.
+	 */
+	private void dual() throws InfeasibleLPException {
+		SparseMatrix A = work.A;
+		double[] cost = work.cost;
+		double[] lower = work.lower;
+		double[] upper = work.upper;
+		double[] x = work.x;
+		int[] status = work.status;
+		int[] B = work.B;
+		double[] pi = work.pi;
+		int[] nonBaseColumns = work.nonBaseColumns;
+		double[] b_tilde = work.basicValues;
+		double[] pivotRow = work.pivotRow;
+		double[] reducedCost = work.reducedCost;
+		int rank = B.length;
+		long phaseStart = statistics.start();
+		try {
+			factorize();
+			boolean first = true;
+			boolean trace = LOG.isTraceEnabled();
+
+			while (true) {
+				++iterations;
+				statistics.iteration(Phase.DUAL);
+				computeDuals();
+				long start = statistics.start();
+				for (int j : nonBaseColumns) {
+					double d = cost[j] - A.dotColumn(j, pi);
+					reducedCost[j] = d;
+					if (lower[j] == upper[j]) {
+						continue;
+					}
+					if (d > OPTIMALITY_TOLERANCE && status[j] != AT_LOWER) {
+						if (!Double.isInfinite(lower[j])) {
+							status[j] = AT_LOWER;
+							x[j] = lower[j];
+						} else {
+							Preconditions.checkArgument(!first, "basis is not dual feasible");
+						}
+					} else if (d < -OPTIMALITY_TOLERANCE && status[j] != AT_UPPER) {
+						if (!Double.isInfinite(upper[j])) {
+							status[j] = AT_UPPER;
+							x[j] = upper[j];
+						} else {
+							Preconditions.checkArgument(!first, "basis is not dual feasible");
+						}
+					}
+				}
+				statistics.stop(Step.PRICING, start);
+				first = false;
+				computePrimal(b_tilde);
+
+				// Choose the leaving row with the largest bound violation
+				start = statistics.start();
+				int leaving = -1;
+				double maxInfeasibility = FEASIBILITY_TOLERANCE;
+				for (int i = 0; i < rank; i++) {
+					int j = B[i];
+					double infeasibility = Math.max(lower[j] - x[j], x[j] - upper[j]);
+					if (infeasibility > maxInfeasibility) {
+						maxInfeasibility = infeasibility;
+						leaving = i;
+					}
+				}
+				statistics.stop(Step.PRICING, start);
+				if (leaving == -1) {
+					// Primal feasible, hence optimal
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("DUAL optimal after " + statistics.getIterations(Phase.DUAL) + " iterations, objective "
+								+ work.objective());
+					}
+					return;
+				}
+				int k = B[leaving];
+				boolean toLower = x[k] < lower[k];
+				computePivotRow(leaving, pivotRow);
+
+				// Find the entering column (Harris ratio test): first the largest
+				// dual step that keeps all reduced costs within their relaxed sign
+				// conditions, then the largest pivot among the columns that block
+				// before that step
+				start = statistics.start();
+				int sign = toLower ? -1 : 1;
+				double max_step = Double.POSITIVE_INFINITY;
+				for (int j : nonBaseColumns) {
+					double slack = dualSlack(j, sign * pivotRow[j], reducedCost[j]);
+					if (!Double.isNaN(slack)) {
+						max_step = Math.min(max_step, (slack + OPTIMALITY_TOLERANCE) / Math.abs(pivotRow[j]));
+					}
+				}
+				int entering = -1;
+				double max_pivot = 0;
+				double step = 0;
+				for (int j : nonBaseColumns) {
+					double slack = dualSlack(j, sign * pivotRow[j], reducedCost[j]);
+					if (!Double.isNaN(slack) && slack / Math.abs(pivotRow[j]) <= max_step
+							&& Math.abs(pivotRow[j]) > max_pivot) {
+						max_pivot = Math.abs(pivotRow[j]);
+						entering = j;
+						step = slack / max_pivot;
+					}
+				}
+				statistics.stop(Step.RATIO_TEST, start);
+
+				// Check if problem is infeasible
+				if (entering == -1) {
+					throw new InfeasibleLPException();
+				}
+				if (step <= OPTIMALITY_TOLERANCE) {
+					statistics.degeneratePivots++;
+				}
+				if (trace) {
+					LOG.trace("DUAL iteration " + iterations + ": objective " + work.objective() + ", entering "
+							+ work.exportColumn(entering) + ", leaving " + work.exportColumn(k));
+				}
+				report(Phase.DUAL, entering, k);
+
+				status[k] = toLower ? AT_LOWER : AT_UPPER;
+				x[k] = toLower ? lower[k] : upper[k];
+				work.exchange(leaving, entering);
+				update(leaving, entering);
+			}
+		} finally {
+			statistics.stop(Phase.DUAL, phaseStart);
+		}
+	}
+
+	/**
+	 * Decides whether nonbasic column <code>j</code> can enter in the dual
+	 * ratio test. Moving the column in the direction that drives the leaving
+	 * variable towards its violated bound requires <code>alpha &gt; 0</code>
+	 * for an increase and <code>alpha &lt; 0</code> for a decrease.
+	 *
+	 * @return the reduced cost with the sign that dual feasibility keeps
+	 *         non-negative, or <code>NaN</code> if the column cannot enter
+	 */
+	private double dualSlack(int j, double alpha, double reducedCost) {
+		if (work.lower[j] == work.upper[j]) {
+			return Double.NaN;
+		}
+		int status = work.status[j];
+		boolean increase = alpha > PIVOT_TOLERANCE && status != AT_UPPER;
+		boolean decrease = alpha < -PIVOT_TOLERANCE && status != AT_LOWER;
+		if (increase) {
+			return Math.max(reducedCost, 0);
+		} else if (decrease) {
+			return Math.max(-reducedCost, 0);
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * Computes the values of the basic variables <code>x_B = A_B^-1 (b - A_N
+	 * x_N)</code>.
+	 *
+	 * @return the largest change of a basic value
+	 */
+	private double computePrimal(double[] b_tilde) {
+		long start = statistics.start();
+		int[] B = work.B;
+		System.arraycopy(work.b, 0, b_tilde, 0, B.length);
+		work.subtractNonBasicActivity(b_tilde);
+		work.basis.ftran(b_tilde);
+		double drift = 0;
+		for (int i = 0; i < B.length; i++) {
+			drift = Math.max(drift, Math.abs(work.x[B[i]] - b_tilde[i]));
+			work.x[B[i]] = b_tilde[i];
+		}
+		statistics.stop(Step.FTRAN, start);
+		return drift;
+	}
+
+	/**
+	 * Computes the duals <code>pi^T = c_B^T A_B^-1</code>.
+	 */
+	private void computeDuals() {
+		long start = statistics.start();
+		int[] B = work.B;
+		double[] pi = work.pi;
+		for (int i = 0; i < B.length; i++) {
+			pi[i] = work.cost[B[i]];
+		}
+		work.basis.btran(pi);
+		statistics.stop(Step.BTRAN, start);
+	}
+
+	/**
+	 * Computes the reduced costs <code>d_j = c_j - pi^T a_j</code> of all
+	 * columns from the current duals.
+	 *
+	 * @return the largest change of the reduced cost of a nonbasic column
+	 */
+	private double computeReducedCosts() {
+		long start = statistics.start();
+		double[] reducedCosts = work.reducedCost;
+		double drift = 0;
+		for (int j : work.nonBaseColumns) {
+			double d = work.cost[j] - work.A.dotColumn(j, work.pi);
+			drift = Math.max(drift, Math.abs(reducedCosts[j] - d));
+			reducedCosts[j] = d;
+		}
+		for (int j : work.B) {
+			reducedCosts[j] = 0;
+		}
+		statistics.stop(Step.PRICING, start);
+		return drift;
+	}
+
+	/**
+	 * Replaces the incrementally updated basic values, duals and reduced costs
+	 * by freshly computed ones and records how far they had drifted.
+	 */
+	private void checkDrift(Phase phase) {
+		double drift = computePrimal(work.basicValues);
+		computeDuals();
+		drift = Math.max(drift, computeReducedCosts());
+		statistics.drift(drift);
+		if (drift > DRIFT_TOLERANCE && LOG.isDebugEnabled()) {
+			LOG.debug(phase + " iteration " + iterations + ": incremental updates drifted by " + drift);
+		}
+	}
+
+	/**
+	 * Computes row <code>position</code> of <code>A_B^-1 A</code> for the
+	 * nonbasic columns.
+	 */
+	private void computePivotRow(int position, double[] pivotRow) {
+		long start = statistics.start();
+		double[] rho = work.rho;
+		Arrays.fill(rho, 0);
+		rho[position] = 1;
+		work.basis.btran(rho);
+		for (int j : work.nonBaseColumns) {
+			pivotRow[j] = work.A.dotColumn(j, rho);
+		}
+		statistics.stop(Step.BTRAN, start);
+	}
+
+	/**
+	 * Factorizes the current basis from scratch.
+	 */
+	private void factorize() {
+		long start = statistics.start();
+		work.basis.factorize(work.A, work.B);
+		statistics.stop(Step.FACTORIZE, start);
+	}
+
+	/**
+	 * Replaces the column at basis position <code>position</code> in the
+	 * factorization and refactorizes if the updates have accumulated.
+	 *
+	 * @return whether the basis was refactorized
+	 */
+	private boolean update(int position, int column) {
+		long start = statistics.start();
+		work.basis.update(position, column);
+		statistics.stop(Step.UPDATE, start);
+		if (work.basis.needsRefactorization()) {
+			statistics.refactorizations++;
+			factorize();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Replaces artificial variables that are still basic after Phase II by
+	 * original columns with a nonzero entry in their row of the tableau. Such
+	 * pivots are degenerate since the artificial variables are zero.
+	 */
+	private void driveOutArtificials(int numArtificials) {
+		int[] B = work.B;
+		double[] pivotRow = work.pivotRow;
+		for (int position = 0; position < B.length; position++) {
+			if (B[position] >= numArtificials) {
+				continue;
+			}
+			computePivotRow(position, pivotRow);
+			int entering = -1;
+			double max = PIVOT_TOLERANCE;
+			for (int j : work.nonBaseColumns) {
+				if (j >= numArtificials && Math.abs(pivotRow[j]) > max) {
+					max = Math.abs(pivotRow[j]);
+					entering = j;
+				}
+			}
+			if (entering != -1) {
+				int k = work.exchange(position, entering);
+				work.status[k] = AT_LOWER;
+				work.x[k] = 0;
+				update(position, entering);
+				statistics.degeneratePivots++;
+			}
+		}
+	}
+
+	/**
+	 * Copies the solution to the variables of the program if enabled.
+	 */
+	private void storeSolution() {
+		if (storeSolution) {
+			program.variables = work.solution();
+		}
+	}
+
+	/**
+	 * @return the unscaled values of the variables of the program at the end
+	 *         of the last solve
+	 */
+	public double[] getSolution() {
+		Preconditions.checkState(work != null, "nothing solved yet");
+		return work.solution();
+	}
+
+	/**
+	 * @return the objective value of the program at {@link #getSolution()}
+	 */
+	public double getObjectiveValue() {
+		double[] variables = getSolution();
+		double value = program.objConstant;
+		for (int j = 0; j < variables.length; j++) {
+			value += program.obj[j] * variables[j];
+		}
+		return value;
+	}
+
+	/**
+	 * @return the number of iterations of the last solve, including Phase I
+	 *         if it was started by {@link #solve()}
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * @return the statistics of the last solve
+	 */
+	public SolverStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Offers the state of the running solve to the pricing strategy.
+	 */
+	private class Pricer implements PricingContext {
+
+		@Override
+		public SparseMatrix getMatrix() {
+			return work.A;
+		}
+
+		@Override
+		public BasisFactorization getBasis() {
+			return work.basis;
+		}
+
+		@Override
+		public int getBasic(int position) {
+			return work.B[position];
+		}
+
+		@Override
+		public int getNumNonBasic() {
+			return work.nonBaseColumns.length;
+		}
+
+		@Override
+		public int getNonBasic(int i) {
+			return work.nonBaseColumns[i];
+		}
+
+		@Override
+		public double dualInfeasibility(int j) {
+			double reducedCost = incremental ? work.reducedCost[j] : work.cost[j] - work.A.dotColumn(j, work.pi);
+			boolean movable = work.upper[j] > work.lower[j];
+			switch (work.status[j]) {
+			case AT_LOWER:
+				return (reducedCost < -OPTIMALITY_TOLERANCE && movable) ? -reducedCost : 0;
+			case AT_UPPER:
+				return (reducedCost > OPTIMALITY_TOLERANCE && movable) ? reducedCost : 0;
+			case AT_ZERO:
+				return (Math.abs(reducedCost) > OPTIMALITY_TOLERANCE) ? Math.abs(reducedCost) : 0;
+			default:
+				return 0;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws FileNotFoundException, ParseException, IOException,
+			InfeasibleLPException, UnboundedLPException {
+		String filePath = args[0];
+		LinearProgram program = new LinearProgram(filePath);
+		boolean isMax = (program.objGoal == ObjectiveGoal.MAX) ? true : false;
+		program.normalize();
+		System.out.println(program);
+		boolean isConverted = isMax && (program.objGoal == ObjectiveGoal.MIN);
+
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.solve();
+
+		double value = solver.getObjectiveValue();
+		if (isConverted) {
+			value *= -1;
+		}
+		System.out.println("Objective: " + value);
+
+		double[] variables = solver.getSolution();
+		for (int i = 0; i < program.numVariables; i++) {
+			if (variables[i] != 0) {
+				System.out.println(program.varName[i] + ": " + variables[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Arrays;
+
+/**
+ * Row and column scale factors for a constraint matrix, such that the scaled
+ * matrix <code>R A C</code> has entries of similar magnitude.
+ *
+ * The factors are computed by iterative geometric mean scaling, which divides
+ * every row and column by the square root of the product of its smallest and
+ * largest entry, until the spread of the entries stops improving. Then rows
+ * and columns are equilibrated so that their largest entry is about one. All
+ * factors are rounded to powers of two, scaling therefore does not introduce
+ * rounding errors.
+ */
+public class Scaling {
+	/** Maximal number of geometric mean passes. */
+	private static final int MAX_PASSES = 20;
+	/** A pass has to reduce the spread of the entries at least by this factor. */
+	private static final double MIN_IMPROVEMENT = 0.9;
+
+	private final double[] rowScale;
+	private final double[] columnScale;
+
+	public Scaling(SparseMatrix A) {
+		int numRows = A.getNumRows();
+		int numColumns = A.getNumColumns();
+		rowScale = new double[numRows];
+		columnScale = new double[numColumns];
+		Arrays.fill(rowScale, 1);
+		Arrays.fill(columnScale, 1);
+		SparseMatrix rows = A.transpose();
+
+		double spread = spread(A);
+		for (int pass = 0; pass < MAX_PASSES && spread > 1; pass++) {
+			for (int i = 0; i < numRows; i++) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = 0;
+				for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+					double value = Math.abs(rows.value(k)) * columnScale[rows.rowIndex(k)];
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				if (max > 0) {
+					rowScale[i] = 1 / Math.sqrt(min * max);
+				}
+			}
+			for (int j = 0; j < numColumns; j++) {
+				double min = Double.POSITIVE_INFINITY;
+				double max = 0;
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					double value = Math.abs(A.value(k)) * rowScale[A.rowIndex(k)];
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+				if (max > 0) {
+					columnScale[j] = 1 / Math.sqrt(min * max);
+				}
+			}
+			double newSpread = spread(A);
+			if (newSpread > MIN_IMPROVEMENT * spread) {
+				break;
+			}
+			spread = newSpread;
+		}
+
+		// Equilibrate rows, then columns
+		for (int i = 0; i < numRows; i++) {
+			double max = 0;
+			for (int k = rows.columnStart(i); k < rows.columnEnd(i); k++) {
+				max = Math.max(max, Math.abs(rows.value(k)) * rowScale[i] * columnScale[rows.rowIndex(k)]);
+			}
+			if (max > 0) {
+				rowScale[i] = powerOfTwo(rowScale[i] / max);
+			}
+		}
+		for (int j = 0; j < numColumns; j++) {
+			double max = 0;
+			for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+				max = Math.max(max, Math.abs(A.value(k)) * rowScale[A.rowIndex(k)] * columnScale[j]);
+			}
+			if (max > 0) {
+				columnScale[j] = powerOfTwo(columnScale[j] / max);
+			}
+		}
+	}
+
+	/**
+	 * @return the factor of row <code>i</code> of the scaled matrix
+	 */
+	public double getRowScale(int i) {
+		return rowScale[i];
+	}
+
+	/**
+	 * @return the factor of column <code>j</code> of the scaled matrix, the
+	 *         variable <code>j</code> of the original program is this factor
+	 *         times the variable of the scaled program
+	 */
+	public double getColumnScale(int j) {
+		return columnScale[j];
+	}
+
+	/**
+	 * @return the ratio of the largest to the smallest absolute entry of the
+	 *         scaled matrix
+	 */
+	private double spread(SparseMatrix A) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = 0;
+		for (int j = 0; j < A.getNumColumns(); j++) {
+			for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+				double value = Math.abs(A.value(k)) * rowScale[A.rowIndex(k)] * columnScale[j];
+				if (value > 0) {
+					min = Math.min(min, value);
+					max = Math.max(max, value);
+				}
+			}
+		}
+		return (max > 0) ? max / min : 1;
+	}
+
+	private static double powerOfTwo(double value) {
+		return Math.scalb(1.0, (int) Math.round(Math.log(value) / Math.log(2)));
+	}
+}
@@ -0,0 +1,187 @@
+package de.tu_berlin.coga.jimplex;
+
+/**
+ * Counters and timers of one solve of a {@link RevisedSimplex}.
+ *
+ * Iterations, pivots and refactorizations are always counted. The timers are
+ * only read if timing has been enabled by
+ * {@link RevisedSimplex#setTiming(boolean)}, otherwise they stay zero and
+ * the solve does not call {@link System#nanoTime()}.
+ */
+public class SolverStatistics {
+
+	public static enum Phase {
+		/** primal simplex minimising the artificial infeasibilities */
+		PHASE_ONE,
+		/** primal simplex on the original costs */
+		PHASE_TWO,
+		/** dual simplex */
+		DUAL
+	}
+
+	public static enum Step {
+		/** building the scaled working copy of the program */
+		SETUP,
+		/** factorizing the basis from scratch */
+		FACTORIZE,
+		/** updating the factorization after a basis change */
+		UPDATE,
+		/** solves with the basis: values of the basic variables and the entering column */
+		FTRAN,
+		/** solves with the transposed basis: duals and pivot rows */
+		BTRAN,
+		/** choosing the entering column, or the leaving row of the dual simplex */
+		PRICING,
+		/** choosing the leaving row, or the entering column of the dual simplex */
+		RATIO_TEST
+	}
+
+	private final boolean timing;
+	private final int[] iterations = new int[Phase.values().length];
+	private final long[] phaseNanos = new long[Phase.values().length];
+	private final long[] stepNanos = new long[Step.values().length];
+	int degeneratePivots;
+	int boundFlips;
+	int refactorizations;
+	private double maxDrift;
+	private long peakWorkspaceBytes;
+
+	SolverStatistics(boolean timing) {
+		this.timing = timing;
+	}
+
+	/**
+	 * @return whether the timers have been read during the solve
+	 */
+	public boolean isTiming() {
+		return timing;
+	}
+
+	/**
+	 * @return the number of iterations of a phase. An iteration is a pricing
+	 *         pass, the last one of each phase finds no entering column.
+	 */
+	public int getIterations(Phase phase) {
+		return iterations[phase.ordinal()];
+	}
+
+	/**
+	 * @return the number of iterations of all phases
+	 */
+	public int getIterations() {
+		int sum = 0;
+		for (int count : iterations) {
+			sum += count;
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the time spent in a phase in nanoseconds
+	 */
+	public long getNanos(Phase phase) {
+		return phaseNanos[phase.ordinal()];
+	}
+
+	/**
+	 * @return the time spent in a step over all phases in nanoseconds
+	 */
+	public long getNanos(Step step) {
+		return stepNanos[step.ordinal()];
+	}
+
+	/**
+	 * @return the number of basis changes that did not move the solution
+	 */
+	public int getDegeneratePivots() {
+		return degeneratePivots;
+	}
+
+	/**
+	 * @return the number of iterations in which the entering variable moved to
+	 *         its opposite bound instead of entering the basis
+	 */
+	public int getBoundFlips() {
+		return boundFlips;
+	}
+
+	/**
+	 * @return the number of times the factorization was rebuilt because the
+	 *         updates had accumulated, not counting the factorization at the
+	 *         start of each phase
+	 */
+	public int getRefactorizations() {
+		return refactorizations;
+	}
+
+	/**
+	 * @return the largest difference between an incrementally updated basic
+	 *         value or reduced cost and its recomputed value, 0 unless
+	 *         {@link RevisedSimplex#setIncrementalUpdates(boolean)} is enabled
+	 */
+	public double getMaxDrift() {
+		return maxDrift;
+	}
+
+	/**
+	 * @return the largest estimated size of the working arrays of the solver
+	 *         in bytes, not counting the basis factorization
+	 */
+	public long getPeakWorkspaceBytes() {
+		return peakWorkspaceBytes;
+	}
+
+	void iteration(Phase phase) {
+		iterations[phase.ordinal()]++;
+	}
+
+	/**
+	 * @return the start time for {@link #stop}, 0 if timing is disabled
+	 */
+	long start() {
+		return timing ? System.nanoTime() : 0;
+	}
+
+	void stop(Step step, long start) {
+		if (timing) {
+			stepNanos[step.ordinal()] += System.nanoTime() - start;
+		}
+	}
+
+	void stop(Phase phase, long start) {
+		if (timing) {
+			phaseNanos[phase.ordinal()] += System.nanoTime() - start;
+		}
+	}
+
+	void drift(double drift) {
+		maxDrift = Math.max(maxDrift, drift);
+	}
+
+	void workspace(long bytes) {
+		peakWorkspaceBytes = Math.max(peakWorkspaceBytes, bytes);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder strBuilder = new StringBuilder();
+		for (Phase phase : Phase.values()) {
+			strBuilder.append(phase).append(": ").append(getIterations(phase)).append(" iterations");
+			if (timing) {
+				strBuilder.append(", ").append(getNanos(phase) / 1000000).append(" ms");
+			}
+			strBuilder.append('\n');
+		}
+		if (timing) {
+			for (Step step : Step.values()) {
+				strBuilder.append(step).append(": ").append(getNanos(step) / 1000000).append(" ms\n");
+			}
+		}
+		strBuilder.append("degenerate pivots: ").append(degeneratePivots).append('\n');
+		strBuilder.append("bound flips: ").append(boundFlips).append('\n');
+		strBuilder.append("refactorizations: ").append(refactorizations).append('\n');
+		strBuilder.append("max drift: ").append(maxDrift).append('\n');
+		strBuilder.append("peak workspace: ").append(peakWorkspaceBytes).append(" bytes\n");
+		return strBuilder.toString();
+	}
+}
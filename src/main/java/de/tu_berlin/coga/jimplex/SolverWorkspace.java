@@ -0,0 +1,269 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Arrays;
+
+import de.tu_berlin.coga.jimplex.basis.BasisFactorization;
+import de.tu_berlin.coga.jimplex.exceptions.InfeasibleLPException;
+
+/**
+ * The state of one solve of a {@link RevisedSimplex}.
+ *
+ * A workspace holds the scaled working copy of the program, extended by an
+ * artificial identity column in front for every row, the values and statuses
+ * of all columns, the basis with its factorization and the scratch vectors of
+ * the iterations. It only reads the program when it is built, so any number
+ * of solvers can work on the same program at the same time, each with its own
+ * workspace.
+ */
+final class SolverWorkspace {
+	/** Working copy of the constraints, artificial columns first */
+	final SparseMatrix A;
+	final double[] b;
+	/** Costs of the running phase */
+	final double[] cost;
+	final double[] lower;
+	final double[] upper;
+	/** Factors that turn the scaled values of the variables into unscaled ones */
+	final double[] columnScale;
+	final BasisFactorization basis;
+
+	final double[] x;
+	final int[] status;
+	/** Column of every basis position */
+	final int[] B;
+	final int[] nonBaseColumns;
+
+	// Scratch vectors indexed by basis position
+	final double[] pi;
+	final double[] basicValues;
+	final double[] alpha;
+	final double[] rho;
+	// Scratch vectors indexed by column
+	final double[] pivotRow;
+	final double[] reducedCost;
+
+	/**
+	 * Builds the working copy of a program. The artificial variables are fixed
+	 * at zero and cost nothing.
+	 *
+	 * @param scaling
+	 *          whether to scale the constraint matrix by {@link Scaling}
+	 * @throws InfeasibleLPException
+	 *           if a variable has a lower bound above its upper bound
+	 */
+	SolverWorkspace(LinearProgram program, boolean scaling, BasisFactorization basis) throws InfeasibleLPException {
+		int numVariables = program.numVariables;
+		int numConstraints = program.constraints.getNumRows();
+		SparseMatrix oldConstraints = program.constraints;
+		int numColumns = numConstraints + numVariables;
+
+		// Prepend identity matrix to old constraints
+		int[] newStart = new int[numColumns + 1];
+		int[] newIndex = new int[numConstraints + oldConstraints.getNumNonZeros()];
+		double[] newValues = new double[newIndex.length];
+		int nnz = 0;
+		for (int i = 0; i < numConstraints; i++) {
+			newStart[i] = nnz;
+			newIndex[nnz] = i;
+			newValues[nnz++] = 1;
+		}
+		Scaling scale = scaling ? new Scaling(oldConstraints) : null;
+		for (int j = 0; j < numVariables; j++) {
+			newStart[numConstraints + j] = nnz;
+			for (int k = oldConstraints.columnStart(j); k < oldConstraints.columnEnd(j); k++) {
+				int row = oldConstraints.rowIndex(k);
+				newIndex[nnz] = row;
+				newValues[nnz++] = (scale == null) ? oldConstraints.value(k) : oldConstraints.value(k)
+						* scale.getRowScale(row) * scale.getColumnScale(j);
+			}
+		}
+		newStart[numColumns] = nnz;
+
+		A = new SparseMatrix(numConstraints, newStart, newIndex, newValues);
+		b = Arrays.copyOf(program.rightHandSide, numConstraints);
+		cost = new double[numColumns];
+		lower = new double[numColumns];
+		upper = new double[numColumns];
+		System.arraycopy(program.obj, 0, cost, numConstraints, numVariables);
+		System.arraycopy(program.lowerBound, 0, lower, numConstraints, numVariables);
+		System.arraycopy(program.upperBound, 0, upper, numConstraints, numVariables);
+		for (int j = numConstraints; j < numColumns; j++) {
+			if (lower[j] > upper[j]) {
+				throw new InfeasibleLPException();
+			}
+		}
+
+		// Scale the program: x = C x', b' = R b, c' = C c, bounds divided by C.
+		// The artificial columns stay unit columns.
+		columnScale = new double[numVariables];
+		Arrays.fill(columnScale, 1);
+		if (scale != null) {
+			for (int i = 0; i < numConstraints; i++) {
+				b[i] *= scale.getRowScale(i);
+			}
+			for (int j = 0; j < numVariables; j++) {
+				double factor = scale.getColumnScale(j);
+				columnScale[j] = factor;
+				cost[numConstraints + j] *= factor;
+				lower[numConstraints + j] /= factor;
+				upper[numConstraints + j] /= factor;
+			}
+		}
+
+		this.basis = basis;
+		x = new double[numColumns];
+		status = new int[numColumns];
+		B = new int[numConstraints];
+		nonBaseColumns = new int[numVariables];
+		pi = new double[numConstraints];
+		basicValues = new double[numConstraints];
+		alpha = new double[numConstraints];
+		rho = new double[numConstraints];
+		pivotRow = new double[numColumns];
+		reducedCost = new double[numColumns];
+	}
+
+	/**
+	 * Puts all columns from <code>first</code> on at a bound.
+	 */
+	void initNonBasic(int first) {
+		for (int j = first; j < x.length; j++) {
+			if (!Double.isInfinite(lower[j])) {
+				status[j] = RevisedSimplex.AT_LOWER;
+				x[j] = lower[j];
+			} else if (!Double.isInfinite(upper[j])) {
+				status[j] = RevisedSimplex.AT_UPPER;
+				x[j] = upper[j];
+			} else {
+				status[j] = RevisedSimplex.AT_ZERO;
+				x[j] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Makes the given columns the basis and collects the remaining columns as
+	 * nonbasic ones. The statuses of the nonbasic columns are left unchanged.
+	 */
+	void setBasis(int[] columns) {
+		System.arraycopy(columns, 0, B, 0, B.length);
+		boolean[] basic = new boolean[x.length];
+		for (int j : B) {
+			basic[j] = true;
+			status[j] = RevisedSimplex.BASIC;
+		}
+		int k = 0;
+		for (int j = 0; j < basic.length; j++) {
+			if (!basic[j]) {
+				nonBaseColumns[k++] = j;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the basic column at <code>position</code> by
+	 * <code>entering</code>. The status of the leaving column has to be set by
+	 * the caller, the factorization is not touched.
+	 *
+	 * @return the leaving column
+	 */
+	int exchange(int position, int entering) {
+		int leaving = B[position];
+		status[entering] = RevisedSimplex.BASIC;
+		B[position] = entering;
+		for (int i = 0; i < nonBaseColumns.length; i++) {
+			if (nonBaseColumns[i] == entering) {
+				nonBaseColumns[i] = leaving;
+				break;
+			}
+		}
+		return leaving;
+	}
+
+	/**
+	 * Subtracts <code>A_N x_N</code> from a vector indexed by row.
+	 */
+	void subtractNonBasicActivity(double[] rhs) {
+		for (int j : nonBaseColumns) {
+			if (x[j] != 0) {
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					rhs[A.rowIndex(k)] -= A.value(k) * x[j];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Translates the basis to the columns of the program. Artificial columns
+	 * are reported as <code>-(row + 1)</code>.
+	 */
+	int[] exportBasis() {
+		int[] opt = new int[B.length];
+		for (int i = 0; i < B.length; i++) {
+			opt[i] = exportColumn(B[i]);
+		}
+		return opt;
+	}
+
+	/**
+	 * Translates a column like {@link #exportBasis()}.
+	 */
+	int exportColumn(int j) {
+		int numConstraints = B.length;
+		return (j < numConstraints) ? -(j + 1) : j - numConstraints;
+	}
+
+	/**
+	 * @return the objective value of the running phase at the current solution
+	 */
+	double objective() {
+		double value = 0;
+		for (int j = 0; j < x.length; j++) {
+			value += cost[j] * x[j];
+		}
+		return value;
+	}
+
+	/**
+	 * @return the sum of the bound violations of the basic variables and of
+	 *         the values of the artificial variables
+	 */
+	double infeasibility() {
+		double sum = 0;
+		for (int i = 0; i < B.length; i++) {
+			int j = B[i];
+			if (j >= B.length) {
+				sum += Math.max(0, lower[j] - x[j]) + Math.max(0, x[j] - upper[j]);
+			}
+		}
+		for (int i = 0; i < B.length; i++) {
+			sum += Math.abs(x[i]);
+		}
+		return sum;
+	}
+
+	/**
+	 * @return the unscaled values of the variables of the program
+	 */
+	double[] solution() {
+		int first = B.length;
+		double[] variables = new double[columnScale.length];
+		for (int j = 0; j < variables.length; j++) {
+			variables[j] = x[first + j] * columnScale[j];
+		}
+		return variables;
+	}
+
+	/**
+	 * @return the estimated size of the arrays of the workspace in bytes, not
+	 *         counting the basis factorization
+	 */
+	long bytes() {
+		long rows = A.getNumRows();
+		long columns = A.getNumColumns();
+		// Matrix; b, B and four scratch vectors; cost, bounds, x, status and two
+		// scratch vectors; nonbasic columns and column scales
+		return 12L * A.getNumNonZeros() + 4 * (columns + 1) + 44 * rows + 52 * columns + 4 * (columns - rows) + 8L
+				* columnScale.length;
+	}
+}
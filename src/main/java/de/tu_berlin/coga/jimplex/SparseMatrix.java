@@ -0,0 +1,261 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A sparse matrix stored in compressed sparse column (CSC) format.
+ *
+ * The nonzero entries of column <code>j</code> are held in the positions
+ * <code>columnStart(j)</code> to <code>columnEnd(j) - 1</code> of the row index
+ * and value arrays, sorted by increasing row index. The memory needed is
+ * proportional to the number of nonzeros and the number of columns, not to
+ * rows &times; columns. Matrices are not modified after construction, new
+ * matrices are assembled through a {@link Builder}.
+ */
+public class SparseMatrix {
+	private final int numRows;
+	private final int numColumns;
+	private final int[] columnStart;
+	private final int[] rowIndex;
+	private final double[] values;
+
+	/**
+	 * Creates a matrix from raw CSC arrays. The arrays are not copied.
+	 *
+	 * @param numRows
+	 *          number of rows
+	 * @param columnStart
+	 *          start offsets of the columns, of size <code>numColumns + 1</code>
+	 * @param rowIndex
+	 *          row indices of the nonzeros, sorted within each column
+	 * @param values
+	 *          values of the nonzeros
+	 */
+	public SparseMatrix(int numRows, int[] columnStart, int[] rowIndex, double[] values) {
+		Preconditions.checkArgument(columnStart.length > 0);
+		Preconditions.checkArgument(rowIndex.length >= columnStart[columnStart.length - 1]);
+		Preconditions.checkArgument(values.length >= columnStart[columnStart.length - 1]);
+		this.numRows = numRows;
+		this.numColumns = columnStart.length - 1;
+		this.columnStart = columnStart;
+		this.rowIndex = rowIndex;
+		this.values = values;
+	}
+
+	/**
+	 * Creates a sparse copy of a dense matrix given as an array of rows.
+	 */
+	public static SparseMatrix fromDense(double[][] dense, int numColumns) {
+		Builder builder = new Builder(dense.length, numColumns);
+		for (int i = 0; i < dense.length; i++) {
+			for (int j = 0; j < numColumns; j++) {
+				if (dense[i][j] != 0) {
+					builder.add(i, j, dense[i][j]);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	public int getNumRows() {
+		return numRows;
+	}
+
+	public int getNumColumns() {
+		return numColumns;
+	}
+
+	public int getNumNonZeros() {
+		return columnStart[numColumns];
+	}
+
+	/**
+	 * @return the offset of the first nonzero of column <code>j</code>
+	 */
+	public int columnStart(int j) {
+		return columnStart[j];
+	}
+
+	/**
+	 * @return the offset behind the last nonzero of column <code>j</code>
+	 */
+	public int columnEnd(int j) {
+		return columnStart[j + 1];
+	}
+
+	/**
+	 * @return the row index of the nonzero at offset <code>k</code>
+	 */
+	public int rowIndex(int k) {
+		return rowIndex[k];
+	}
+
+	/**
+	 * @return the value of the nonzero at offset <code>k</code>
+	 */
+	public double value(int k) {
+		return values[k];
+	}
+
+	public double get(int row, int column) {
+		int k = Arrays.binarySearch(rowIndex, columnStart[column], columnStart[column + 1], row);
+		return (k >= 0) ? values[k] : 0;
+	}
+
+	/**
+	 * Computes the inner product of column <code>j</code> with a dense vector.
+	 */
+	public double dotColumn(int j, double[] x) {
+		double sum = 0;
+		for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+			sum += values[k] * x[rowIndex[k]];
+		}
+		return sum;
+	}
+
+	/**
+	 * Writes column <code>j</code> into a dense vector. Entries outside the
+	 * column pattern are set to zero.
+	 */
+	public void copyColumn(int j, double[] dense) {
+		Arrays.fill(dense, 0, numRows, 0);
+		for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+			dense[rowIndex[k]] = values[k];
+		}
+	}
+
+	/**
+	 * Creates the transposed matrix. Since the storage is column-wise, the
+	 * transposed matrix gives row-wise access to this matrix.
+	 */
+	public SparseMatrix transpose() {
+		int nnz = getNumNonZeros();
+		int[] tStart = new int[numRows + 1];
+		int[] tIndex = new int[nnz];
+		double[] tValues = new double[nnz];
+
+		for (int k = 0; k < nnz; k++) {
+			tStart[rowIndex[k] + 1]++;
+		}
+		for (int i = 0; i < numRows; i++) {
+			tStart[i + 1] += tStart[i];
+		}
+		int[] next = Arrays.copyOf(tStart, numRows);
+		for (int j = 0; j < numColumns; j++) {
+			for (int k = columnStart[j]; k < columnStart[j + 1]; k++) {
+				int pos = next[rowIndex[k]]++;
+				tIndex[pos] = j;
+				tValues[pos] = values[k];
+			}
+		}
+
+		return new SparseMatrix(numColumns, tStart, tIndex, tValues);
+	}
+
+	/**
+	 * Assembles a matrix from the first <code>size</code> (row, column, value)
+	 * triplets of the given arrays, in arbitrary order. Triplets for the same
+	 * position are summed up. The arrays are not modified.
+	 */
+	public static SparseMatrix fromTriplets(int numRows, int numColumns, int[] rows, int[] columns,
+			double[] entries, int size) {
+		// Bucket sort triplets by column, then insertion sort by row inside
+		// each column (columns are short)
+		int[] start = new int[numColumns + 1];
+		for (int k = 0; k < size; k++) {
+			start[columns[k] + 1]++;
+		}
+		for (int j = 0; j < numColumns; j++) {
+			start[j + 1] += start[j];
+		}
+		int[] next = Arrays.copyOf(start, numColumns);
+		int[] index = new int[size];
+		double[] value = new double[size];
+		for (int k = 0; k < size; k++) {
+			int pos = next[columns[k]]++;
+			index[pos] = rows[k];
+			value[pos] = entries[k];
+		}
+
+		// Sort each column by row index and merge duplicates
+		int nnz = 0;
+		int[] compactStart = new int[numColumns + 1];
+		for (int j = 0; j < numColumns; j++) {
+			int from = start[j];
+			int to = start[j + 1];
+			for (int k = from + 1; k < to; k++) {
+				int r = index[k];
+				double v = value[k];
+				int l = k - 1;
+				while (l >= from && index[l] > r) {
+					index[l + 1] = index[l];
+					value[l + 1] = value[l];
+					l--;
+				}
+				index[l + 1] = r;
+				value[l + 1] = v;
+			}
+			compactStart[j] = nnz;
+			for (int k = from; k < to; k++) {
+				if (nnz > compactStart[j] && index[nnz - 1] == index[k]) {
+					value[nnz - 1] += value[k];
+				} else {
+					index[nnz] = index[k];
+					value[nnz] = value[k];
+					nnz++;
+				}
+			}
+		}
+		compactStart[numColumns] = nnz;
+
+		return new SparseMatrix(numRows, compactStart, Arrays.copyOf(index, nnz), Arrays.copyOf(value, nnz));
+	}
+
+	/**
+	 * Assembles a {@link SparseMatrix} from (row, column, value) triplets in
+	 * arbitrary order. Triplets for the same position are summed up.
+	 */
+	public static class Builder {
+		private final int numRows;
+		private final int numColumns;
+		private int size;
+		private int[] rows;
+		private int[] columns;
+		private double[] entries;
+
+		public Builder(int numRows, int numColumns) {
+			this(numRows, numColumns, 16);
+		}
+
+		public Builder(int numRows, int numColumns, int expectedNonZeros) {
+			this.numRows = numRows;
+			this.numColumns = numColumns;
+			int capacity = Math.max(expectedNonZeros, 16);
+			rows = new int[capacity];
+			columns = new int[capacity];
+			entries = new double[capacity];
+		}
+
+		public Builder add(int row, int column, double value) {
+			Preconditions.checkElementIndex(row, numRows);
+			Preconditions.checkElementIndex(column, numColumns);
+			if (size == rows.length) {
+				int capacity = 2 * size;
+				rows = Arrays.copyOf(rows, capacity);
+				columns = Arrays.copyOf(columns, capacity);
+				entries = Arrays.copyOf(entries, capacity);
+			}
+			rows[size] = row;
+			columns[size] = column;
+			entries[size] = value;
+			size++;
+			return this;
+		}
+
+		public SparseMatrix build() {
+			return fromTriplets(numRows, numColumns, rows, columns, entries, size);
+		}
+	}
+}
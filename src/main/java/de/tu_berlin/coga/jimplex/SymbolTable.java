@@ -0,0 +1,160 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.Arrays;
+
+/**
+ * Numbers names consecutively in the order in which they are added.
+ *
+ * The table is an open addressing hash table with linear probing that only
+ * stores the index of each name, so it needs no objects per entry. Names can
+ * be looked up directly from the ASCII bytes of a line, a string is created
+ * only when a new name is added.
+ */
+class SymbolTable {
+	private String[] names = new String[16];
+	private int[] hashes = new int[16];
+	private int size;
+	/** Index plus one of the name in each slot, 0 for an empty slot. */
+	private int[] slots = new int[32];
+
+	/**
+	 * @return the number of names in the table
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @return the name with the given index
+	 */
+	String name(int index) {
+		return names[index];
+	}
+
+	/**
+	 * @return all names ordered by index
+	 */
+	String[] names() {
+		return Arrays.copyOf(names, size);
+	}
+
+	/**
+	 * @return the index of <code>name</code>, or -1 if it is not in the table
+	 */
+	int indexOf(String name) {
+		int hash = name.hashCode();
+		int mask = slots.length - 1;
+		for (int s = mix(hash) & mask; slots[s] != 0; s = (s + 1) & mask) {
+			int index = slots[s] - 1;
+			if (hashes[index] == hash && names[index].equals(name)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the index of the name given by the ASCII bytes
+	 *         <code>bytes[from]</code> to <code>bytes[to - 1]</code>, or -1 if
+	 *         it is not in the table
+	 */
+	int indexOf(byte[] bytes, int from, int to) {
+		int hash = hash(bytes, from, to);
+		int mask = slots.length - 1;
+		for (int s = mix(hash) & mask; slots[s] != 0; s = (s + 1) & mask) {
+			int index = slots[s] - 1;
+			if (hashes[index] == hash && equals(names[index], bytes, from, to)) {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Adds <code>name</code> unless it is already in the table.
+	 *
+	 * @return the index of <code>name</code>
+	 */
+	int add(String name) {
+		int index = indexOf(name);
+		return (index >= 0) ? index : insert(name, name.hashCode());
+	}
+
+	/**
+	 * Adds the name given by the ASCII bytes <code>bytes[from]</code> to
+	 * <code>bytes[to - 1]</code> unless it is already in the table.
+	 *
+	 * @return the index of the name
+	 */
+	int add(byte[] bytes, int from, int to) {
+		int index = indexOf(bytes, from, to);
+		if (index >= 0) {
+			return index;
+		}
+		char[] chars = new char[to - from];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) bytes[from + i];
+		}
+		return insert(new String(chars), hash(bytes, from, to));
+	}
+
+	private int insert(String name, int hash) {
+		if (size == names.length) {
+			names = Arrays.copyOf(names, 2 * size);
+			hashes = Arrays.copyOf(hashes, 2 * size);
+		}
+		names[size] = name;
+		hashes[size] = hash;
+		size++;
+		if (2 * size > slots.length) {
+			slots = new int[2 * slots.length];
+			for (int index = 0; index < size; index++) {
+				place(index);
+			}
+		} else {
+			place(size - 1);
+		}
+		return size - 1;
+	}
+
+	private void place(int index) {
+		int mask = slots.length - 1;
+		int s = mix(hashes[index]) & mask;
+		while (slots[s] != 0) {
+			s = (s + 1) & mask;
+		}
+		slots[s] = index + 1;
+	}
+
+	/**
+	 * Same as {@link String#hashCode()} of the ASCII string.
+	 */
+	private static int hash(byte[] bytes, int from, int to) {
+		int hash = 0;
+		for (int i = from; i < to; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+		return hash;
+	}
+
+	/**
+	 * Spreads the bits of a string hash code, which are poor in the low bits for
+	 * names like <code>x1</code>, <code>x2</code>, ...
+	 */
+	private static int mix(int hash) {
+		hash *= 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static boolean equals(String name, byte[] bytes, int from, int to) {
+		if (name.length() != to - from) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) != bytes[from + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
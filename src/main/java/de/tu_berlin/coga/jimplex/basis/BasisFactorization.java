@@ -0,0 +1,57 @@
+package de.tu_berlin.coga.jimplex.basis;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.exceptions.SingularBasisException;
+
+/**
+ * A representation of the basis matrix <code>A_B</code> that allows to solve
+ * linear systems with it and to replace single columns.
+ *
+ * Vectors indexed by <em>row</em> have one entry per constraint, vectors indexed
+ * by <em>position</em> have one entry per basis position, i.e. entry
+ * <code>i</code> belongs to the basic variable <code>B[i]</code>.
+ */
+public interface BasisFactorization {
+
+	/**
+	 * Computes a fresh factorization of the columns <code>B</code> of
+	 * <code>A</code>. Any pending updates are discarded.
+	 *
+	 * @throws SingularBasisException
+	 *           if the basis matrix is singular
+	 */
+	void factorize(SparseMatrix A, int[] B);
+
+	/**
+	 * Solves <code>A_B x = a</code> in place (forward transformation).
+	 *
+	 * @param x
+	 *          on entry <code>a</code> indexed by row, on exit <code>x</code>
+	 *          indexed by position
+	 */
+	void ftran(double[] x);
+
+	/**
+	 * Solves <code>y^T A_B = c^T</code> in place (backward transformation).
+	 *
+	 * @param y
+	 *          on entry <code>c</code> indexed by position, on exit
+	 *          <code>y</code> indexed by row
+	 */
+	void btran(double[] y);
+
+	/**
+	 * Replaces the column at basis position <code>position</code> by column
+	 * <code>column</code> of the matrix passed to the last
+	 * {@link #factorize(SparseMatrix, int[])}.
+	 */
+	void update(int position, int column);
+
+	/**
+	 * @return whether the caller should call
+	 *         {@link #factorize(SparseMatrix, int[])} before the next solve,
+	 *         e.g. because the update count reached its limit or an update
+	 *         was numerically unstable
+	 */
+	boolean needsRefactorization();
+}
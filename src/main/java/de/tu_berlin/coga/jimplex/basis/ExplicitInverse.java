@@ -0,0 +1,78 @@
+package de.tu_berlin.coga.jimplex.basis;
+
+import java.util.Arrays;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.exceptions.SingularBasisException;
+
+/**
+ * Keeps the dense inverse of the basis matrix and reinverts it after every
+ * basis change. This costs O(m&sup3;) per iteration and is only useful as a
+ * reference for the other representations.
+ */
+public class ExplicitInverse implements BasisFactorization {
+	private DenseMatrix64F inverse;
+	private double[] work;
+	private boolean stale;
+
+	@Override
+	public void factorize(SparseMatrix A, int[] B) {
+		int rows = A.getNumRows();
+		DenseMatrix64F matrix = new DenseMatrix64F(rows, B.length);
+		for (int i = 0; i < B.length; i++) {
+			for (int k = A.columnStart(B[i]); k < A.columnEnd(B[i]); k++) {
+				matrix.set(A.rowIndex(k), i, A.value(k));
+			}
+		}
+
+		if (!CommonOps.invert(matrix)) {
+			throw new SingularBasisException(new int[0], new int[0]);
+		}
+		inverse = matrix;
+		work = new double[rows];
+		stale = false;
+	}
+
+	@Override
+	public void ftran(double[] x) {
+		int m = work.length;
+		System.arraycopy(x, 0, work, 0, m);
+		double[] data = inverse.getData();
+		for (int i = 0; i < m; i++) {
+			double sum = 0;
+			for (int j = 0; j < m; j++) {
+				sum += data[i * m + j] * work[j];
+			}
+			x[i] = sum;
+		}
+	}
+
+	@Override
+	public void btran(double[] y) {
+		int m = work.length;
+		System.arraycopy(y, 0, work, 0, m);
+		Arrays.fill(y, 0, m, 0);
+		double[] data = inverse.getData();
+		for (int i = 0; i < m; i++) {
+			double yi = work[i];
+			if (yi != 0) {
+				for (int j = 0; j < m; j++) {
+					y[j] += yi * data[i * m + j];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void update(int position, int column) {
+		stale = true;
+	}
+
+	@Override
+	public boolean needsRefactorization() {
+		return stale;
+	}
+}
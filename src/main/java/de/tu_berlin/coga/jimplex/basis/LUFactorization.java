@@ -0,0 +1,699 @@
+package de.tu_berlin.coga.jimplex.basis;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.exceptions.SingularBasisException;
+
+/**
+ * Sparse LU factorization of the basis matrix with Forrest&ndash;Tomlin
+ * updates.
+ *
+ * The factorization is computed by Gaussian elimination choosing pivots by the
+ * Markowitz criterion (minimal <code>(r - 1)(c - 1)</code> for row count
+ * <code>r</code> and column count <code>c</code>) among all entries that pass a
+ * relative threshold test. The eliminations are stored as column etas
+ * (<code>L</code>), the pivot rows form a permuted upper triangular matrix
+ * (<code>U</code>) that is stored row-wise.
+ *
+ * A basis change replaces one column of <code>U</code> by the partially
+ * transformed entering column (the spike), moves it with its pivot row to the
+ * end of the triangular order and eliminates the row entries that fell below
+ * the diagonal. Those eliminations are recorded as row etas (<code>R</code>),
+ * so the basis is represented as <code>L R<sub>1</sub><sup>-1</sup> ...
+ * R<sub>k</sub><sup>-1</sup> U</code>. The cost of an update and of FTRAN and
+ * BTRAN is linear in the number of nonzeros of the factors.
+ *
+ * Column identities of <code>U</code> are never reused between two
+ * factorizations: a replaced column is marked dead and the spike gets a new
+ * identity, which is why the number of updates is limited.
+ */
+public class LUFactorization implements BasisFactorization {
+	/** Relative threshold of the pivot test. */
+	private static final double PIVOT_THRESHOLD = 0.1;
+	/** Absolute magnitude below which an entry is not accepted as pivot. */
+	private static final double PIVOT_TOLERANCE = 1e-11;
+	/** Number of rows / columns examined after a first pivot candidate. */
+	private static final int SEARCH_LIMIT = 4;
+
+	private final int refactorizationInterval;
+
+	private SparseMatrix A;
+	private int m;
+	private int numUpdates;
+	private boolean unstable;
+
+	// L: column etas x[lIndex] -= lValue * x[lRow]
+	private int numL;
+	private int[] lRow;
+	private int[] lStart;
+	private int[] lIndex;
+	private double[] lValue;
+
+	// R: row etas x[rRow] -= sum rValue * x[rIndex]
+	private int numR;
+	private int[] rRow;
+	private int[] rStart;
+	private int[] rIndex;
+	private double[] rValue;
+
+	// U: rows of off-diagonal entries in a pool, indexed by column identity
+	private int[] uStart;
+	private int[] uLength;
+	private int[] uCapacity;
+	private int uPoolSize;
+	private int[] uIndex;
+	private double[] uValue;
+	private double[] diagonal;
+
+	// Triangular order of the rows and pairing of rows, columns and positions
+	private int[] order;
+	private int[] rowColumn;
+	private int[] columnRow;
+	private int[] positionColumn;
+	private boolean[] dead;
+	private int nextColumn;
+
+	// Work arrays
+	private double[] rowWork;
+	private double[] columnWork;
+	private Elimination elimination;
+
+	/**
+	 * Creates an LU factorization that asks for refactorization after 100
+	 * updates.
+	 */
+	public LUFactorization() {
+		this(100);
+	}
+
+	/**
+	 * @param refactorizationInterval
+	 *          number of Forrest&ndash;Tomlin updates after which a fresh
+	 *          factorization is requested
+	 */
+	public LUFactorization(int refactorizationInterval) {
+		Preconditions.checkArgument(refactorizationInterval > 0);
+		this.refactorizationInterval = refactorizationInterval;
+	}
+
+	@Override
+	public void factorize(SparseMatrix A, int[] B) {
+		Preconditions.checkArgument(A.getNumRows() == B.length);
+		this.A = A;
+		allocate(B.length);
+		elimination.load(A, B);
+		elimination.run();
+	}
+
+	private void allocate(int size) {
+		if (m != size || order == null) {
+			m = size;
+			int columns = m + refactorizationInterval;
+			lRow = new int[m];
+			lStart = new int[m + 1];
+			rRow = new int[refactorizationInterval];
+			rStart = new int[refactorizationInterval + 1];
+			rIndex = new int[Math.max(m, 16)];
+			rValue = new double[rIndex.length];
+			uStart = new int[m];
+			uLength = new int[m];
+			uCapacity = new int[m];
+			diagonal = new double[m];
+			order = new int[m];
+			rowColumn = new int[m];
+			columnRow = new int[columns];
+			positionColumn = new int[m];
+			dead = new boolean[columns];
+			rowWork = new double[m];
+			columnWork = new double[columns];
+			elimination = new Elimination();
+		}
+		numL = 0;
+		numR = 0;
+		numUpdates = 0;
+		unstable = false;
+		Arrays.fill(dead, false);
+		for (int p = 0; p < m; p++) {
+			positionColumn[p] = p;
+		}
+		nextColumn = m;
+	}
+
+	@Override
+	public void ftran(double[] x) {
+		applyLR(x);
+
+		// Back substitution with U in reverse triangular order
+		double[] z = columnWork;
+		for (int t = m - 1; t >= 0; t--) {
+			int r = order[t];
+			double value = x[r];
+			for (int k = uStart[r], end = uStart[r] + uLength[r]; k < end; k++) {
+				int j = uIndex[k];
+				if (!dead[j]) {
+					value -= uValue[k] * z[j];
+				}
+			}
+			z[rowColumn[r]] = value / diagonal[r];
+		}
+		for (int p = 0; p < m; p++) {
+			x[p] = z[positionColumn[p]];
+		}
+	}
+
+	/**
+	 * Applies <code>L<sup>-1</sup></code> and the row etas to a vector indexed
+	 * by row.
+	 */
+	private void applyLR(double[] x) {
+		for (int e = 0; e < numL; e++) {
+			double xr = x[lRow[e]];
+			if (xr != 0) {
+				for (int k = lStart[e]; k < lStart[e + 1]; k++) {
+					x[lIndex[k]] -= lValue[k] * xr;
+				}
+			}
+		}
+		for (int e = 0; e < numR; e++) {
+			double sum = 0;
+			for (int k = rStart[e]; k < rStart[e + 1]; k++) {
+				sum += rValue[k] * x[rIndex[k]];
+			}
+			x[rRow[e]] -= sum;
+		}
+	}
+
+	@Override
+	public void btran(double[] y) {
+		double[] z = columnWork;
+		for (int p = 0; p < m; p++) {
+			z[positionColumn[p]] = y[p];
+		}
+
+		// Forward substitution with U transposed in triangular order
+		for (int t = 0; t < m; t++) {
+			int r = order[t];
+			double value = z[rowColumn[r]] / diagonal[r];
+			y[r] = value;
+			if (value != 0) {
+				for (int k = uStart[r], end = uStart[r] + uLength[r]; k < end; k++) {
+					z[uIndex[k]] -= uValue[k] * value;
+				}
+			}
+		}
+
+		for (int e = numR - 1; e >= 0; e--) {
+			double yr = y[rRow[e]];
+			if (yr != 0) {
+				for (int k = rStart[e]; k < rStart[e + 1]; k++) {
+					y[rIndex[k]] -= rValue[k] * yr;
+				}
+			}
+		}
+		for (int e = numL - 1; e >= 0; e--) {
+			double sum = 0;
+			for (int k = lStart[e]; k < lStart[e + 1]; k++) {
+				sum += lValue[k] * y[lIndex[k]];
+			}
+			y[lRow[e]] -= sum;
+		}
+	}
+
+	@Override
+	public void update(int position, int column) {
+		Preconditions.checkState(numUpdates < refactorizationInterval, "update limit reached, refactorize first");
+
+		// Spike: entering column transformed by L and the row etas
+		double[] spike = rowWork;
+		A.copyColumn(column, spike);
+		applyLR(spike);
+
+		int oldColumn = positionColumn[position];
+		int r = columnRow[oldColumn];
+		int newColumn = nextColumn++;
+		dead[oldColumn] = true;
+		positionColumn[position] = newColumn;
+		columnRow[newColumn] = r;
+		rowColumn[r] = newColumn;
+
+		int t = 0;
+		while (order[t] != r) {
+			t++;
+		}
+
+		// Eliminate the entries of row r behind position t using the rows
+		// following it in the triangular order; the spike is the last column.
+		double[] w = columnWork;
+		Arrays.fill(w, 0);
+		for (int k = uStart[r], end = uStart[r] + uLength[r]; k < end; k++) {
+			if (!dead[uIndex[k]]) {
+				w[uIndex[k]] = uValue[k];
+			}
+		}
+		double newDiagonal = spike[r];
+		int etaStart = (numR == 0) ? 0 : rStart[numR];
+		int etaEnd = etaStart;
+		for (int s = t + 1; s < m; s++) {
+			int row = order[s];
+			int col = rowColumn[row];
+			double value = w[col];
+			if (value != 0) {
+				w[col] = 0;
+				double multiplier = value / diagonal[row];
+				for (int k = uStart[row], end = uStart[row] + uLength[row]; k < end; k++) {
+					if (!dead[uIndex[k]]) {
+						w[uIndex[k]] -= multiplier * uValue[k];
+					}
+				}
+				newDiagonal -= multiplier * spike[row];
+				if (etaEnd == rIndex.length) {
+					rIndex = Arrays.copyOf(rIndex, 2 * etaEnd);
+					rValue = Arrays.copyOf(rValue, 2 * etaEnd);
+				}
+				rIndex[etaEnd] = row;
+				rValue[etaEnd] = multiplier;
+				etaEnd++;
+			}
+		}
+		rRow[numR] = r;
+		rStart[numR] = etaStart;
+		rStart[numR + 1] = etaEnd;
+		numR++;
+
+		// Row r only keeps the new diagonal, the spike becomes column newColumn
+		uLength[r] = 0;
+		diagonal[r] = newDiagonal;
+		for (int i = 0; i < m; i++) {
+			if (i != r && spike[i] != 0) {
+				appendU(i, newColumn, spike[i]);
+			}
+		}
+		System.arraycopy(order, t + 1, order, t, m - t - 1);
+		order[m - 1] = r;
+
+		if (Math.abs(newDiagonal) < PIVOT_TOLERANCE) {
+			unstable = true;
+		}
+		numUpdates++;
+	}
+
+	@Override
+	public boolean needsRefactorization() {
+		return unstable || numUpdates >= refactorizationInterval;
+	}
+
+	/**
+	 * Appends an entry to row <code>r</code> of <code>U</code>, moving the row
+	 * to the end of the pool if it is full.
+	 */
+	private void appendU(int r, int column, double value) {
+		if (uLength[r] == uCapacity[r]) {
+			int capacity = Math.max(4, 2 * uCapacity[r]);
+			ensurePool(uPoolSize + capacity);
+			System.arraycopy(uIndex, uStart[r], uIndex, uPoolSize, uLength[r]);
+			System.arraycopy(uValue, uStart[r], uValue, uPoolSize, uLength[r]);
+			uStart[r] = uPoolSize;
+			uCapacity[r] = capacity;
+			uPoolSize += capacity;
+		}
+		int k = uStart[r] + uLength[r]++;
+		uIndex[k] = column;
+		uValue[k] = value;
+	}
+
+	private void ensurePool(int size) {
+		if (size > uIndex.length) {
+			int capacity = Math.max(size, 2 * uIndex.length);
+			uIndex = Arrays.copyOf(uIndex, capacity);
+			uValue = Arrays.copyOf(uValue, capacity);
+		}
+	}
+
+	/**
+	 * Right-looking Gaussian elimination with Markowitz pivoting. The active
+	 * submatrix is kept row-wise in the <code>U</code> pool, so a row becomes a
+	 * row of <code>U</code> as soon as it is pivotal. Column patterns are kept
+	 * separately and may contain rows that are no longer active. The work
+	 * arrays are kept between factorizations of the same size.
+	 */
+	private class Elimination {
+		private final int[] rowCount;
+		private final int[] columnCount;
+		private final boolean[] rowActive;
+		private final boolean[] columnActive;
+
+		private final int[] cStart;
+		private final int[] cLength;
+		private final int[] cCapacity;
+		private int[] cIndex = new int[0];
+		private int cPoolSize;
+
+		// Doubly linked buckets of rows and columns by their count
+		private final int[] rowHead;
+		private final int[] rowNext;
+		private final int[] rowPrev;
+		private final int[] columnHead;
+		private final int[] columnNext;
+		private final int[] columnPrev;
+
+		private final int[] mark;
+		private int stamp;
+
+		private int pivotRow;
+		private int pivotColumn;
+
+		Elimination() {
+			rowCount = new int[m];
+			columnCount = new int[m];
+			rowActive = new boolean[m];
+			columnActive = new boolean[m];
+			cStart = new int[m];
+			cLength = new int[m];
+			cCapacity = new int[m];
+			rowHead = new int[m + 1];
+			rowNext = new int[m];
+			rowPrev = new int[m];
+			columnHead = new int[m + 1];
+			columnNext = new int[m];
+			columnPrev = new int[m];
+			mark = new int[m];
+		}
+
+		/**
+		 * Loads the basis columns row-wise into the U pool.
+		 */
+		void load(SparseMatrix A, int[] B) {
+			Arrays.fill(rowCount, 0);
+			Arrays.fill(cLength, 0);
+			int nnz = 0;
+			for (int p = 0; p < m; p++) {
+				int j = B[p];
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					rowCount[A.rowIndex(k)]++;
+				}
+				columnCount[p] = A.columnEnd(j) - A.columnStart(j);
+				nnz += columnCount[p];
+			}
+			int capacity = 2 * nnz + 4 * m;
+			if (uIndex == null || uIndex.length < capacity) {
+				uIndex = new int[capacity];
+				uValue = new double[capacity];
+			}
+			if (cIndex.length < capacity) {
+				cIndex = new int[capacity];
+			}
+			int uPos = 0;
+			int cPos = 0;
+			for (int i = 0; i < m; i++) {
+				uStart[i] = uPos;
+				uLength[i] = 0;
+				uCapacity[i] = rowCount[i] + 2;
+				uPos += uCapacity[i];
+			}
+			for (int p = 0; p < m; p++) {
+				cStart[p] = cPos;
+				cCapacity[p] = columnCount[p] + 2;
+				cPos += cCapacity[p];
+			}
+			uPoolSize = uPos;
+			cPoolSize = cPos;
+			for (int p = 0; p < m; p++) {
+				int j = B[p];
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					int i = A.rowIndex(k);
+					int pos = uStart[i] + uLength[i]++;
+					uIndex[pos] = p;
+					uValue[pos] = A.value(k);
+					cIndex[cStart[p] + cLength[p]++] = i;
+				}
+			}
+
+			Arrays.fill(rowHead, -1);
+			Arrays.fill(columnHead, -1);
+			for (int i = 0; i < m; i++) {
+				rowActive[i] = true;
+				linkRow(i);
+			}
+			for (int p = 0; p < m; p++) {
+				columnActive[p] = true;
+				linkColumn(p);
+			}
+		}
+
+		void run() {
+			int[] lIdx = (lIndex == null) ? new int[Math.max(16, m)] : lIndex;
+			double[] lVal = (lValue == null) ? new double[lIdx.length] : lValue;
+			int lSize = 0;
+
+			for (int step = 0; step < m; step++) {
+				if (!findPivot()) {
+					throwSingular(step);
+				}
+				int r = pivotRow;
+				int c = pivotColumn;
+
+				unlinkRow(r);
+				rowActive[r] = false;
+				unlinkColumn(c);
+				columnActive[c] = false;
+
+				// Remove the pivot from row r and scatter the rest of the row
+				double pivot = 0;
+				stamp++;
+				double[] work = rowWork;
+				for (int k = uStart[r]; k < uStart[r] + uLength[r]; k++) {
+					int j = uIndex[k];
+					if (j == c) {
+						pivot = uValue[k];
+						int last = uStart[r] + --uLength[r];
+						uIndex[k] = uIndex[last];
+						uValue[k] = uValue[last];
+						k--;
+					} else {
+						unlinkColumn(j);
+						columnCount[j]--;
+						linkColumn(j);
+						mark[j] = stamp;
+					}
+				}
+				diagonal[r] = pivot;
+				rowColumn[r] = c;
+				columnRow[c] = r;
+				order[step] = r;
+				for (int k = uStart[r]; k < uStart[r] + uLength[r]; k++) {
+					work[uIndex[k]] = uValue[k];
+				}
+
+				// Eliminate column c from the other active rows
+				lRow[numL] = r;
+				lStart[numL] = lSize;
+				for (int q = cStart[c]; q < cStart[c] + cLength[c]; q++) {
+					int i = cIndex[q];
+					if (!rowActive[i]) {
+						continue;
+					}
+					unlinkRow(i);
+					double multiplier = removeEntry(i, c) / pivot;
+					if (lSize == lIdx.length) {
+						lIdx = Arrays.copyOf(lIdx, 2 * lSize);
+						lVal = Arrays.copyOf(lVal, 2 * lSize);
+					}
+					lIdx[lSize] = i;
+					lVal[lSize] = multiplier;
+					lSize++;
+
+					// Update existing entries, then append the fill-in
+					int seen = -stamp;
+					for (int k = uStart[i]; k < uStart[i] + uLength[i]; k++) {
+						int j = uIndex[k];
+						if (mark[j] == stamp) {
+							uValue[k] -= multiplier * work[j];
+							mark[j] = seen;
+						}
+					}
+					for (int k = uStart[r]; k < uStart[r] + uLength[r]; k++) {
+						int j = uIndex[k];
+						if (mark[j] == seen) {
+							mark[j] = stamp;
+						} else {
+							appendU(i, j, -multiplier * work[j]);
+							appendColumn(j, i);
+							unlinkColumn(j);
+							columnCount[j]++;
+							linkColumn(j);
+						}
+					}
+					rowCount[i] = uLength[i];
+					linkRow(i);
+				}
+				lStart[numL + 1] = lSize;
+				numL++;
+
+				// The pivot row leaves the active submatrix
+				for (int k = uStart[r]; k < uStart[r] + uLength[r]; k++) {
+					work[uIndex[k]] = 0;
+				}
+			}
+			lIndex = lIdx;
+			lValue = lVal;
+		}
+
+		/**
+		 * Searches the buckets of increasing count for the entry of least
+		 * Markowitz cost that passes the threshold test. The search stops
+		 * {@link #SEARCH_LIMIT} rows or columns after the first candidate.
+		 */
+		private boolean findPivot() {
+			long bestCost = Long.MAX_VALUE;
+			int searched = 0;
+			pivotRow = -1;
+			for (int count = 1; count <= m; count++) {
+				for (int j = columnHead[count]; j != -1; j = columnNext[j]) {
+					double max = columnMax(j);
+					for (int q = cStart[j]; q < cStart[j] + cLength[j]; q++) {
+						int i = cIndex[q];
+						if (rowActive[i]) {
+							double value = Math.abs(entry(i, j));
+							long cost = (long) (rowCount[i] - 1) * (count - 1);
+							if (value >= PIVOT_TOLERANCE && value >= PIVOT_THRESHOLD * max && cost < bestCost) {
+								bestCost = cost;
+								pivotRow = i;
+								pivotColumn = j;
+							}
+						}
+					}
+					if (pivotRow != -1 && (bestCost == 0 || ++searched >= SEARCH_LIMIT)) {
+						return true;
+					}
+				}
+				for (int i = rowHead[count]; i != -1; i = rowNext[i]) {
+					for (int k = uStart[i]; k < uStart[i] + uLength[i]; k++) {
+						int j = uIndex[k];
+						double value = Math.abs(uValue[k]);
+						long cost = (long) (count - 1) * (columnCount[j] - 1);
+						if (value >= PIVOT_TOLERANCE && cost < bestCost && value >= PIVOT_THRESHOLD * columnMax(j)) {
+							bestCost = cost;
+							pivotRow = i;
+							pivotColumn = j;
+						}
+					}
+					if (pivotRow != -1 && (bestCost == 0 || ++searched >= SEARCH_LIMIT)) {
+						return true;
+					}
+				}
+			}
+			return pivotRow != -1;
+		}
+
+		private double columnMax(int j) {
+			double max = 0;
+			for (int q = cStart[j]; q < cStart[j] + cLength[j]; q++) {
+				int i = cIndex[q];
+				if (rowActive[i]) {
+					max = Math.max(max, Math.abs(entry(i, j)));
+				}
+			}
+			return max;
+		}
+
+		private double entry(int i, int j) {
+			for (int k = uStart[i]; k < uStart[i] + uLength[i]; k++) {
+				if (uIndex[k] == j) {
+					return uValue[k];
+				}
+			}
+			return 0;
+		}
+
+		private double removeEntry(int i, int j) {
+			for (int k = uStart[i]; k < uStart[i] + uLength[i]; k++) {
+				if (uIndex[k] == j) {
+					double value = uValue[k];
+					int last = uStart[i] + --uLength[i];
+					uIndex[k] = uIndex[last];
+					uValue[k] = uValue[last];
+					return value;
+				}
+			}
+			return 0;
+		}
+
+		private void appendColumn(int j, int i) {
+			if (cLength[j] == cCapacity[j]) {
+				int capacity = Math.max(4, 2 * cCapacity[j]);
+				if (cPoolSize + capacity > cIndex.length) {
+					cIndex = Arrays.copyOf(cIndex, Math.max(cPoolSize + capacity, 2 * cIndex.length));
+				}
+				System.arraycopy(cIndex, cStart[j], cIndex, cPoolSize, cLength[j]);
+				cStart[j] = cPoolSize;
+				cCapacity[j] = capacity;
+				cPoolSize += capacity;
+			}
+			cIndex[cStart[j] + cLength[j]++] = i;
+		}
+
+		private void throwSingular(int step) {
+			int[] positions = new int[m - step];
+			int[] rows = new int[m - step];
+			int n = 0;
+			for (int p = 0; p < m; p++) {
+				if (columnActive[p]) {
+					positions[n++] = p;
+				}
+			}
+			n = 0;
+			for (int i = 0; i < m; i++) {
+				if (rowActive[i]) {
+					rows[n++] = i;
+				}
+			}
+			order = null;
+			throw new SingularBasisException(positions, rows);
+		}
+
+		private void linkRow(int i) {
+			int count = rowCount[i];
+			rowPrev[i] = -1;
+			rowNext[i] = rowHead[count];
+			if (rowHead[count] != -1) {
+				rowPrev[rowHead[count]] = i;
+			}
+			rowHead[count] = i;
+		}
+
+		private void unlinkRow(int i) {
+			if (rowPrev[i] != -1) {
+				rowNext[rowPrev[i]] = rowNext[i];
+			} else {
+				rowHead[rowCount[i]] = rowNext[i];
+			}
+			if (rowNext[i] != -1) {
+				rowPrev[rowNext[i]] = rowPrev[i];
+			}
+		}
+
+		private void linkColumn(int j) {
+			int count = columnCount[j];
+			columnPrev[j] = -1;
+			columnNext[j] = columnHead[count];
+			if (columnHead[count] != -1) {
+				columnPrev[columnHead[count]] = j;
+			}
+			columnHead[count] = j;
+		}
+
+		private void unlinkColumn(int j) {
+			if (columnPrev[j] != -1) {
+				columnNext[columnPrev[j]] = columnNext[j];
+			} else {
+				columnHead[columnCount[j]] = columnNext[j];
+			}
+			if (columnNext[j] != -1) {
+				columnPrev[columnNext[j]] = columnPrev[j];
+			}
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package de.tu_berlin.coga.jimplex.basis;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+
+/**
+ * Product form of the inverse: the inverse of the basis matrix at the last
+ * refactorization followed by an eta file with one elementary column
+ * transformation per basis change, i.e. <code>A_B<sup>-1</sup> =
+ * E<sub>k</sub> ... E<sub>1</sub> A_B0<sup>-1</sup></code>.
+ *
+ * An update only stores the nonzeros of the transformed entering column. A
+ * fresh inverse is requested when the eta file reaches the configured length
+ * or when a pivot element is small compared to the rest of its column.
+ */
+public class ProductFormInverse implements BasisFactorization {
+	/** Entries of an eta column below this magnitude are dropped. */
+	private static final double DROP_TOLERANCE = 1e-14;
+	/** Minimal ratio of the pivot to the largest entry of its eta column. */
+	private static final double STABILITY_THRESHOLD = 1e-9;
+
+	private final int maxEtas;
+	private final ExplicitInverse base = new ExplicitInverse();
+
+	private SparseMatrix A;
+	private int m;
+	private boolean unstable;
+
+	private int numEtas;
+	private int[] etaPosition;
+	private double[] etaPivot;
+	private int[] etaStart;
+	private int[] etaIndex;
+	private double[] etaValue;
+	private double[] work;
+
+	/**
+	 * Creates a product form inverse that asks for refactorization after 50
+	 * updates.
+	 */
+	public ProductFormInverse() {
+		this(50);
+	}
+
+	/**
+	 * @param maxEtas
+	 *          length of the eta file after which a fresh inverse is requested
+	 */
+	public ProductFormInverse(int maxEtas) {
+		Preconditions.checkArgument(maxEtas > 0);
+		this.maxEtas = maxEtas;
+		this.etaPosition = new int[maxEtas];
+		this.etaPivot = new double[maxEtas];
+		this.etaStart = new int[maxEtas + 1];
+		this.etaIndex = new int[16];
+		this.etaValue = new double[16];
+	}
+
+	@Override
+	public void factorize(SparseMatrix A, int[] B) {
+		base.factorize(A, B);
+		this.A = A;
+		if (m != B.length || work == null) {
+			m = B.length;
+			work = new double[m];
+		}
+		numEtas = 0;
+		unstable = false;
+	}
+
+	@Override
+	public void ftran(double[] x) {
+		base.ftran(x);
+		for (int e = 0; e < numEtas; e++) {
+			int p = etaPosition[e];
+			double xp = x[p] / etaPivot[e];
+			x[p] = xp;
+			if (xp != 0) {
+				for (int k = etaStart[e]; k < etaStart[e + 1]; k++) {
+					x[etaIndex[k]] -= etaValue[k] * xp;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void btran(double[] y) {
+		for (int e = numEtas - 1; e >= 0; e--) {
+			int p = etaPosition[e];
+			double sum = y[p];
+			for (int k = etaStart[e]; k < etaStart[e + 1]; k++) {
+				sum -= etaValue[k] * y[etaIndex[k]];
+			}
+			y[p] = sum / etaPivot[e];
+		}
+		base.btran(y);
+	}
+
+	@Override
+	public void update(int position, int column) {
+		Preconditions.checkState(numEtas < maxEtas, "eta file is full, refactorize first");
+		double[] alpha = work;
+		A.copyColumn(column, alpha);
+		ftran(alpha);
+
+		double pivot = alpha[position];
+		double max = 0;
+		int start = etaStart[numEtas];
+		int end = start;
+		for (int i = 0; i < m; i++) {
+			double value = alpha[i];
+			max = Math.max(max, Math.abs(value));
+			if (i != position && Math.abs(value) > DROP_TOLERANCE) {
+				if (end == etaIndex.length) {
+					etaIndex = Arrays.copyOf(etaIndex, 2 * end);
+					etaValue = Arrays.copyOf(etaValue, 2 * end);
+				}
+				etaIndex[end] = i;
+				etaValue[end] = value;
+				end++;
+			}
+		}
+		etaPosition[numEtas] = position;
+		etaPivot[numEtas] = pivot;
+		etaStart[numEtas + 1] = end;
+		numEtas++;
+
+		if (Math.abs(pivot) < STABILITY_THRESHOLD * max) {
+			unstable = true;
+		}
+	}
+
+	@Override
+	public boolean needsRefactorization() {
+		return unstable || numEtas >= maxEtas;
+	}
+}
@@ -0,0 +1,31 @@
+package de.tu_berlin.coga.jimplex.exceptions;
+
+/**
+ * Thrown if a basis matrix cannot be factorized because it is (numerically)
+ * singular. Carries the basis positions that could not be pivoted and the
+ * rows that were left without a pivot, if they are known.
+ */
+public class SingularBasisException extends RuntimeException {
+	private final int[] positions;
+	private final int[] rows;
+
+	public SingularBasisException(int[] positions, int[] rows) {
+		super("singular basis (" + positions.length + " dependent columns)");
+		this.positions = positions;
+		this.rows = rows;
+	}
+
+	/**
+	 * @return the basis positions whose columns are linearly dependent
+	 */
+	public int[] getPositions() {
+		return positions;
+	}
+
+	/**
+	 * @return the rows not covered by a pivot, as many as positions
+	 */
+	public int[] getRows() {
+		return rows;
+	}
+}
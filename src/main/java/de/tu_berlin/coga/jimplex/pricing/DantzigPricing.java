@@ -0,0 +1,25 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+/**
+ * Dantzig's rule: the column with the most negative reduced cost enters.
+ */
+public class DantzigPricing extends WeightedPricing {
+
+	@Override
+	public void init(PricingContext context) {
+	}
+
+	@Override
+	protected double score(int j, double infeasibility) {
+		return infeasibility;
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return false;
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+	}
+}
@@ -0,0 +1,54 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import java.util.Arrays;
+
+/**
+ * Devex pricing (Forrest and Goldfarb): approximate steepest-edge weights
+ * relative to a reference framework, which is the set of nonbasic columns at
+ * the start. The column maximising <code>d_j&sup2; / w_j</code> enters. The
+ * framework is reset when the weights have grown too far.
+ */
+public class DevexPricing extends WeightedPricing {
+	private static final double RESET_THRESHOLD = 1e6;
+
+	private double[] weights;
+
+	@Override
+	public void init(PricingContext context) {
+		int numColumns = context.getMatrix().getNumColumns();
+		if (weights == null || weights.length != numColumns) {
+			weights = new double[numColumns];
+		}
+		Arrays.fill(weights, 1);
+	}
+
+	@Override
+	protected double score(int j, double infeasibility) {
+		return infeasibility * infeasibility / weights[j];
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return true;
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+		double pivot = alpha[leavingPosition];
+		double enteringWeight = weights[entering];
+		double leavingWeight = Math.max(enteringWeight / (pivot * pivot), 1);
+		if (leavingWeight > RESET_THRESHOLD) {
+			Arrays.fill(weights, 1);
+			return;
+		}
+
+		for (int i = 0; i < context.getNumNonBasic(); i++) {
+			int j = context.getNonBasic(i);
+			double ratio = pivotRow[j] / pivot;
+			if (j != entering && ratio != 0) {
+				weights[j] = Math.max(weights[j], ratio * ratio * enteringWeight);
+			}
+		}
+		weights[context.getBasic(leavingPosition)] = leavingWeight;
+	}
+}
@@ -0,0 +1,126 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Multiple pricing: a major iteration prices all nonbasic columns and keeps
+ * the most attractive ones in a short candidate list. The following minor
+ * iterations only reprice the candidates against the current duals and choose
+ * the best of them, until the list is exhausted, no candidate is attractive
+ * any more or the number of minor iterations is reached.
+ */
+public class MultiplePricing implements PricingStrategy {
+	private final int listSize;
+	private final int maxMinorIterations;
+
+	private final int[] candidates;
+	private final double[] infeasibilities;
+	private int numCandidates;
+	private int minorIterations;
+
+	/**
+	 * Creates a candidate list of the given size that is used for as many
+	 * minor iterations as it has entries.
+	 */
+	public MultiplePricing(int listSize) {
+		this(listSize, listSize);
+	}
+
+	/**
+	 * @param listSize
+	 *          number of candidates kept by a major iteration
+	 * @param maxMinorIterations
+	 *          number of iterations the list is used for at most
+	 */
+	public MultiplePricing(int listSize, int maxMinorIterations) {
+		Preconditions.checkArgument(listSize > 0);
+		Preconditions.checkArgument(maxMinorIterations > 0);
+		this.listSize = listSize;
+		this.maxMinorIterations = maxMinorIterations;
+		this.candidates = new int[listSize];
+		this.infeasibilities = new double[listSize];
+	}
+
+	@Override
+	public void init(PricingContext context) {
+		numCandidates = 0;
+	}
+
+	@Override
+	public int selectEntering(PricingContext context) {
+		if (numCandidates > 0 && minorIterations < maxMinorIterations) {
+			int best = -1;
+			double bestInfeasibility = 0;
+			for (int k = 0; k < numCandidates; k++) {
+				int j = candidates[k];
+				double infeasibility = context.dualInfeasibility(j);
+				if (infeasibility > bestInfeasibility || (infeasibility == bestInfeasibility && j < best)) {
+					bestInfeasibility = infeasibility;
+					best = j;
+				}
+			}
+			if (best != -1) {
+				minorIterations++;
+				return best;
+			}
+		}
+
+		// Major iteration: collect the most attractive columns, sorted by
+		// decreasing infeasibility
+		numCandidates = 0;
+		minorIterations = 0;
+		for (int i = 0; i < context.getNumNonBasic(); i++) {
+			int j = context.getNonBasic(i);
+			double infeasibility = context.dualInfeasibility(j);
+			if (infeasibility > 0) {
+				insert(j, infeasibility);
+			}
+		}
+		if (numCandidates == 0) {
+			return -1;
+		}
+		minorIterations++;
+		return candidates[0];
+	}
+
+	private void insert(int j, double infeasibility) {
+		int k = numCandidates;
+		if (k == listSize) {
+			if (!isBefore(j, infeasibility, k - 1)) {
+				return;
+			}
+			k--;
+		} else {
+			numCandidates++;
+		}
+		while (k > 0 && isBefore(j, infeasibility, k - 1)) {
+			candidates[k] = candidates[k - 1];
+			infeasibilities[k] = infeasibilities[k - 1];
+			k--;
+		}
+		candidates[k] = j;
+		infeasibilities[k] = infeasibility;
+	}
+
+	private boolean isBefore(int j, double infeasibility, int k) {
+		return infeasibility > infeasibilities[k] || (infeasibility == infeasibilities[k] && j < candidates[k]);
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return false;
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+		// The entering column becomes basic and leaves the candidate list
+		for (int k = 0; k < numCandidates; k++) {
+			if (candidates[k] == entering) {
+				System.arraycopy(candidates, k + 1, candidates, k, numCandidates - k - 1);
+				System.arraycopy(infeasibilities, k + 1, infeasibilities, k, numCandidates - k - 1);
+				numCandidates--;
+				break;
+			}
+		}
+	}
+}
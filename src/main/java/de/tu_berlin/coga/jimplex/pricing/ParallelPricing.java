@@ -0,0 +1,133 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Prices the nonbasic columns of a {@link WeightedPricing} rule in parallel.
+ *
+ * The nonbasic columns are split recursively on a {@link ForkJoinPool} into
+ * chunks, every chunk is reduced to its best candidate and the candidates are
+ * combined with the same comparison as the sequential scan (higher score, then
+ * lower column index). The entering column is therefore the same as with the
+ * wrapped rule alone. Below a threshold the columns are priced sequentially.
+ */
+public class ParallelPricing implements PricingStrategy {
+	private final WeightedPricing rule;
+	private final ForkJoinPool pool;
+	private final int sequentialThreshold;
+	private final int chunkSize;
+
+	/**
+	 * Prices on the common pool when there are at least 4096 nonbasic columns,
+	 * in chunks of 1024 columns.
+	 */
+	public ParallelPricing(WeightedPricing rule) {
+		this(rule, ForkJoinPool.commonPool(), 4096, 1024);
+	}
+
+	/**
+	 * @param rule
+	 *          the pricing rule that scores the columns
+	 * @param pool
+	 *          the pool to price on
+	 * @param sequentialThreshold
+	 *          number of nonbasic columns below which pricing is sequential
+	 * @param chunkSize
+	 *          number of columns priced by one task
+	 */
+	public ParallelPricing(WeightedPricing rule, ForkJoinPool pool, int sequentialThreshold, int chunkSize) {
+		Preconditions.checkArgument(chunkSize > 0);
+		this.rule = rule;
+		this.pool = pool;
+		this.sequentialThreshold = sequentialThreshold;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public void init(PricingContext context) {
+		rule.init(context);
+	}
+
+	@Override
+	public int selectEntering(PricingContext context) {
+		int numNonBasic = context.getNumNonBasic();
+		if (numNonBasic < sequentialThreshold) {
+			return rule.selectEntering(context);
+		}
+		Candidate best = pool.invoke(new PricingTask(context, 0, numNonBasic));
+		return best.column;
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return rule.needsPivotRow();
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+		rule.update(context, entering, leavingPosition, alpha, pivotRow);
+	}
+
+	private static class Candidate {
+		final int column;
+		final double score;
+
+		Candidate(int column, double score) {
+			this.column = column;
+			this.score = score;
+		}
+
+		Candidate better(Candidate other) {
+			if (other.column == -1) {
+				return this;
+			}
+			if (column == -1 || other.score > score || (other.score == score && other.column < column)) {
+				return other;
+			}
+			return this;
+		}
+	}
+
+	private class PricingTask extends RecursiveTask<Candidate> {
+		private static final long serialVersionUID = 1L;
+
+		private final PricingContext context;
+		private final int from;
+		private final int to;
+
+		PricingTask(PricingContext context, int from, int to) {
+			this.context = context;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected Candidate compute() {
+			if (to - from <= chunkSize) {
+				int best = -1;
+				double bestScore = 0;
+				for (int i = from; i < to; i++) {
+					int j = context.getNonBasic(i);
+					double infeasibility = context.dualInfeasibility(j);
+					if (infeasibility > 0) {
+						double score = rule.score(j, infeasibility);
+						if (score > bestScore || (score == bestScore && j < best)) {
+							bestScore = score;
+							best = j;
+						}
+					}
+				}
+				return new Candidate(best, bestScore);
+			}
+
+			int middle = (from + to) >>> 1;
+			PricingTask left = new PricingTask(context, from, middle);
+			left.fork();
+			Candidate right = new PricingTask(context, middle, to).compute();
+			return left.join().better(right);
+		}
+	}
+}
@@ -0,0 +1,71 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Partial pricing: only a window of the nonbasic columns is priced per
+ * iteration and the column with the most negative reduced cost inside the
+ * window enters. The window rotates over the nonbasic columns, the next search
+ * starts behind the window of the last one. Further windows are only priced if
+ * a window has no attractive column, so optimality is still proven by a full
+ * pass.
+ */
+public class PartialPricing implements PricingStrategy {
+	private final int windowSize;
+	private int start;
+
+	/**
+	 * @param windowSize
+	 *          number of nonbasic columns priced per window
+	 */
+	public PartialPricing(int windowSize) {
+		Preconditions.checkArgument(windowSize > 0);
+		this.windowSize = windowSize;
+	}
+
+	@Override
+	public void init(PricingContext context) {
+		start = 0;
+	}
+
+	@Override
+	public int selectEntering(PricingContext context) {
+		int numNonBasic = context.getNumNonBasic();
+		if (start >= numNonBasic) {
+			start = 0;
+		}
+
+		int i = start;
+		int scanned = 0;
+		while (scanned < numNonBasic) {
+			int best = -1;
+			double bestInfeasibility = 0;
+			int end = Math.min(scanned + windowSize, numNonBasic);
+			for (; scanned < end; scanned++) {
+				int j = context.getNonBasic(i);
+				double infeasibility = context.dualInfeasibility(j);
+				if (infeasibility > bestInfeasibility || (infeasibility == bestInfeasibility && j < best)) {
+					bestInfeasibility = infeasibility;
+					best = j;
+				}
+				if (++i == numNonBasic) {
+					i = 0;
+				}
+			}
+			if (best != -1) {
+				start = i;
+				return best;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return false;
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+	}
+}
@@ -0,0 +1,45 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.basis.BasisFactorization;
+
+/**
+ * The view of a running simplex solve that is offered to a
+ * {@link PricingStrategy}. The methods only read the state of the solve, so
+ * they may be called from several threads during
+ * {@link PricingStrategy#selectEntering(PricingContext)}.
+ */
+public interface PricingContext {
+
+	/**
+	 * @return the constraint matrix of the program being solved
+	 */
+	SparseMatrix getMatrix();
+
+	/**
+	 * @return the factorization of the current basis
+	 */
+	BasisFactorization getBasis();
+
+	/**
+	 * @return the column of the basic variable at basis position
+	 *         <code>position</code>
+	 */
+	int getBasic(int position);
+
+	int getNumNonBasic();
+
+	/**
+	 * @return the column of the <code>i</code>-th nonbasic variable
+	 */
+	int getNonBasic(int i);
+
+	/**
+	 * Prices column <code>j</code> against the current duals.
+	 *
+	 * @return the amount by which the reduced cost of column <code>j</code>
+	 *         violates dual feasibility, i.e. a positive value if the column
+	 *         improves the objective when entering the basis and 0 otherwise
+	 */
+	double dualInfeasibility(int j);
+}
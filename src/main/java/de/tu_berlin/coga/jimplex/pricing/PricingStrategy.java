@@ -0,0 +1,45 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+/**
+ * Chooses the entering column of a primal simplex iteration.
+ *
+ * A strategy is initialised once per solve and then alternately asked for an
+ * entering column and informed about the resulting basis change. Strategies
+ * keep state (e.g. reference weights), so an instance must not be shared
+ * between solves running at the same time.
+ */
+public interface PricingStrategy {
+
+	/**
+	 * Called after the initial basis of a solve has been factorized.
+	 */
+	void init(PricingContext context);
+
+	/**
+	 * @return the entering column or -1 if no column is dual infeasible, i.e.
+	 *         the current basis is optimal
+	 */
+	int selectEntering(PricingContext context);
+
+	/**
+	 * @return whether {@link #update} needs the pivot row
+	 */
+	boolean needsPivotRow();
+
+	/**
+	 * Called after the ratio test and before the basis changes.
+	 *
+	 * @param entering
+	 *          the entering column
+	 * @param leavingPosition
+	 *          the basis position of the leaving variable
+	 * @param alpha
+	 *          the entering column transformed by the current basis, indexed by
+	 *          position
+	 * @param pivotRow
+	 *          row <code>leavingPosition</code> of the transformed constraint
+	 *          matrix, indexed by column and valid for the nonbasic columns, or
+	 *          <code>null</code> if {@link #needsPivotRow()} is false
+	 */
+	void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow);
+}
@@ -0,0 +1,93 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+import java.util.Arrays;
+
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.basis.BasisFactorization;
+
+/**
+ * Exact steepest-edge pricing (Goldfarb and Reid): the column maximising
+ * <code>d_j&sup2; / &gamma;_j</code> enters, where <code>&gamma;_j = 1 +
+ * ||A_B<sup>-1</sup> a_j||&sup2;</code> is the squared length of the edge
+ * direction. The weights are computed once per solve and then updated by the
+ * exact recurrence, which costs one extra BTRAN per iteration.
+ */
+public class SteepestEdgePricing extends WeightedPricing {
+	private double[] weights;
+	private double[] work;
+
+	@Override
+	public void init(PricingContext context) {
+		SparseMatrix A = context.getMatrix();
+		int m = A.getNumRows();
+		int numColumns = A.getNumColumns();
+		if (weights == null || weights.length != numColumns) {
+			weights = new double[numColumns];
+		}
+		if (work == null || work.length != m) {
+			work = new double[m];
+		}
+		Arrays.fill(weights, 1);
+
+		// A basis of unit columns (e.g. the artificial start basis) does not
+		// change the length of a column, otherwise every column is transformed
+		boolean unitBasis = true;
+		for (int p = 0; p < m && unitBasis; p++) {
+			int j = context.getBasic(p);
+			unitBasis = (A.columnEnd(j) - A.columnStart(j) == 1) && Math.abs(A.value(A.columnStart(j))) == 1;
+		}
+		BasisFactorization basis = context.getBasis();
+		for (int i = 0; i < context.getNumNonBasic(); i++) {
+			int j = context.getNonBasic(i);
+			double norm = 0;
+			if (unitBasis) {
+				for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+					norm += A.value(k) * A.value(k);
+				}
+			} else {
+				A.copyColumn(j, work);
+				basis.ftran(work);
+				for (int p = 0; p < m; p++) {
+					norm += work[p] * work[p];
+				}
+			}
+			weights[j] = 1 + norm;
+		}
+	}
+
+	@Override
+	protected double score(int j, double infeasibility) {
+		return infeasibility * infeasibility / weights[j];
+	}
+
+	@Override
+	public boolean needsPivotRow() {
+		return true;
+	}
+
+	@Override
+	public void update(PricingContext context, int entering, int leavingPosition, double[] alpha, double[] pivotRow) {
+		SparseMatrix A = context.getMatrix();
+		int m = A.getNumRows();
+		double pivot = alpha[leavingPosition];
+		double enteringWeight = 1;
+		for (int p = 0; p < m; p++) {
+			enteringWeight += alpha[p] * alpha[p];
+		}
+
+		// tau = A_B^-T alpha_q
+		double[] tau = work;
+		System.arraycopy(alpha, 0, tau, 0, m);
+		context.getBasis().btran(tau);
+
+		for (int i = 0; i < context.getNumNonBasic(); i++) {
+			int j = context.getNonBasic(i);
+			double ratio = pivotRow[j] / pivot;
+			if (j != entering && ratio != 0) {
+				double weight = weights[j] - 2 * ratio * A.dotColumn(j, tau) + ratio * ratio * enteringWeight;
+				weights[j] = Math.max(weight, 1 + ratio * ratio);
+			}
+		}
+		weights[context.getBasic(leavingPosition)] = Math.max(enteringWeight / (pivot * pivot), 1);
+	}
+}
@@ -0,0 +1,36 @@
+package de.tu_berlin.coga.jimplex.pricing;
+
+/**
+ * Base class of strategies that price every nonbasic column and choose the one
+ * with the highest score. Ties are broken in favour of the lower column index,
+ * so the choice does not depend on the order of the nonbasic columns.
+ */
+public abstract class WeightedPricing implements PricingStrategy {
+
+	/**
+	 * @param j
+	 *          a nonbasic column
+	 * @param infeasibility
+	 *          the positive dual infeasibility of column <code>j</code>
+	 * @return the attractiveness of column <code>j</code>
+	 */
+	protected abstract double score(int j, double infeasibility);
+
+	@Override
+	public int selectEntering(PricingContext context) {
+		int best = -1;
+		double bestScore = 0;
+		for (int i = 0; i < context.getNumNonBasic(); i++) {
+			int j = context.getNonBasic(i);
+			double infeasibility = context.dualInfeasibility(j);
+			if (infeasibility > 0) {
+				double score = score(j, infeasibility);
+				if (score > bestScore || (score == bestScore && j < best)) {
+					bestScore = score;
+					best = j;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,183 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import de.tu_berlin.coga.jimplex.BatchSolver.Result;
+import de.tu_berlin.coga.jimplex.BatchSolver.Status;
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+
+public class BatchSolverTest extends TestCase {
+	private ExecutorService readers;
+	private ExecutorService solvers;
+
+	@Override
+	protected void setUp() {
+		readers = Executors.newCachedThreadPool();
+		solvers = Executors.newFixedThreadPool(3);
+	}
+
+	@Override
+	protected void tearDown() {
+		readers.shutdown();
+		solvers.shutdown();
+	}
+
+	public void testFiles() {
+		List<String> filenames = new ArrayList<String>();
+		for (int i = 0; i < 10; i++) {
+			filenames.add(SolverTest.resource("random.lp"));
+			filenames.add(SolverTest.resource("small.lp"));
+			filenames.add("missing.lp");
+		}
+		BatchSolver batch = new BatchSolver(readers, solvers, 4);
+
+		boolean[] seen = new boolean[filenames.size()];
+		Iterator<Result> results = batch.solveFiles(filenames.iterator());
+		while (results.hasNext()) {
+			Result result = results.next();
+			assertFalse(seen[result.getIndex()]);
+			seen[result.getIndex()] = true;
+			assertEquals(filenames.get(result.getIndex()), result.getName());
+			switch (result.getIndex() % 3) {
+			case 0:
+				assertEquals(Status.OPTIMAL, result.getStatus());
+				assertEquals(2423.1992093170393, result.getObjectiveValue(), 1e-6);
+				assertEquals(40, result.getSolution().length);
+				break;
+			case 1:
+				assertEquals(Status.OPTIMAL, result.getStatus());
+				assertEquals(-1.0, result.getObjectiveValue(), 1e-9);
+				break;
+			default:
+				assertEquals(Status.FAILED, result.getStatus());
+				assertNotNull(result.getError());
+			}
+		}
+		for (boolean s : seen) {
+			assertTrue(s);
+		}
+	}
+
+	public void testRejectedTasks() {
+		final List<String> filenames = new ArrayList<String>();
+		final List<LinearProgram> programs = new ArrayList<LinearProgram>();
+		for (int i = 0; i < 20; i++) {
+			filenames.add(SolverTest.resource("small.lp"));
+			programs.add(new LPGenerator(20, 30, i).generate());
+		}
+		assertRejectionsFail(solvers, filenames.size(), new Batch() {
+			@Override
+			public Iterator<Result> start(BatchSolver batch) {
+				return batch.solveFiles(filenames.iterator());
+			}
+		}, true);
+		assertRejectionsFail(readers, filenames.size(), new Batch() {
+			@Override
+			public Iterator<Result> start(BatchSolver batch) {
+				return batch.solveFiles(filenames.iterator());
+			}
+		}, false);
+		assertRejectionsFail(solvers, programs.size(), new Batch() {
+			@Override
+			public Iterator<Result> start(BatchSolver batch) {
+				return batch.solve(programs.iterator());
+			}
+		}, true);
+	}
+
+	private interface Batch {
+		Iterator<Result> start(BatchSolver batch);
+	}
+
+	/**
+	 * Runs a batch with a bounded solver (or reader) pool whose only thread is
+	 * blocked until the first result has been taken, so that the pool rejects
+	 * tasks. Every input must still give a result.
+	 */
+	private void assertRejectionsFail(ExecutorService other, int size, Batch batch, boolean boundSolvers) {
+		ThreadPoolExecutor bounded = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(1));
+		final CountDownLatch blocked = new CountDownLatch(1);
+		bounded.execute(new Runnable() {
+			@Override
+			public void run() {
+				Uninterruptibles.awaitUninterruptibly(blocked);
+			}
+		});
+		try {
+			BatchSolver solver = boundSolvers ? new BatchSolver(other, bounded, 8) : new BatchSolver(bounded, other, 8);
+			boolean[] seen = new boolean[size];
+			int rejected = 0;
+			Iterator<Result> results = batch.start(solver);
+			while (results.hasNext()) {
+				Result result = results.next();
+				blocked.countDown();
+				assertFalse(seen[result.getIndex()]);
+				seen[result.getIndex()] = true;
+				if (result.getStatus() == Status.FAILED) {
+					assertTrue(result.getError() instanceof RejectedExecutionException);
+					rejected++;
+				} else {
+					assertEquals(Status.OPTIMAL, result.getStatus());
+				}
+			}
+			for (boolean s : seen) {
+				assertTrue(s);
+			}
+			assertTrue(rejected > 0);
+		} finally {
+			bounded.shutdown();
+		}
+	}
+
+	public void testBoundedInput() {
+		final int maxInFlight = 5;
+		final int[] consumed = new int[1];
+		Iterator<LinearProgram> programs = new Iterator<LinearProgram>() {
+			@Override
+			public boolean hasNext() {
+				return consumed[0] < 40;
+			}
+
+			@Override
+			public LinearProgram next() {
+				LPGenerator generator = new LPGenerator(20, 30, consumed[0]++);
+				generator.setObjectiveGoal(ObjectiveGoal.MAX);
+				return generator.generate();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		BatchSolver batch = new BatchSolver(readers, solvers, maxInFlight);
+
+		int taken = 0;
+		Iterator<Result> results = batch.solve(programs);
+		while (results.hasNext()) {
+			Result result = results.next();
+			taken++;
+			assertTrue(consumed[0] - taken < maxInFlight);
+			assertNull(result.getName());
+			assertEquals(Status.OPTIMAL, result.getStatus());
+			LPGenerator generator = new LPGenerator(20, 30, result.getIndex());
+			generator.setObjectiveGoal(ObjectiveGoal.MAX);
+			assertEquals(generator.getOptimalValue(), result.getObjectiveValue(), 1e-6);
+		}
+		assertEquals(40, taken);
+	}
+}
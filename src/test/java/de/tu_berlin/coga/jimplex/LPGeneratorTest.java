@@ -0,0 +1,73 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+
+public class LPGeneratorTest extends TestCase {
+
+	public void testPlantedOptimum() throws Exception {
+		for (long seed = 1; seed <= 5; seed++) {
+			LPGenerator generator = mixed(seed);
+			LinearProgram program = generator.generate();
+
+			// Every case of normalize() occurs
+			assertTrue(Arrays.asList(program.senses).containsAll(Arrays.asList(Sense.values())));
+			boolean negativeRhs = false;
+			for (double rhs : program.rightHandSide) {
+				negativeRhs |= rhs < 0;
+			}
+			assertTrue(negativeRhs);
+
+			program.normalize();
+			RevisedSimplex solver = new RevisedSimplex(program);
+			solver.solve();
+			// normalize() turned the maximization into a minimization
+			assertEquals(generator.getOptimalValue(), -solver.getObjectiveValue(), 1e-6);
+		}
+	}
+
+	public void testFilesMatchProgram() throws Exception {
+		LPGenerator generator = mixed(7);
+		LinearProgram program = generator.generate();
+		File lp = File.createTempFile("jimplex", ".lp");
+		lp.deleteOnExit();
+		generator.writeLP(lp.getPath());
+		File mps = File.createTempFile("jimplex", ".mps");
+		mps.deleteOnExit();
+		generator.writeMPS(mps.getPath());
+
+		assertEqualPrograms(program, mixed(7).generate());
+		assertEqualPrograms(program, new LinearProgram(lp.getPath()));
+		assertEqualPrograms(program, new MPSReader(mps.getPath()).read());
+	}
+
+	private static LPGenerator mixed(long seed) {
+		LPGenerator generator = new LPGenerator(30, 40, seed);
+		generator.setDensity(0.2);
+		generator.setDegeneracy(0.3);
+		generator.setSenses(1, 1, 1);
+		generator.setBoundTypes(0.2, 0.3, 0.2);
+		generator.setObjectiveGoal(ObjectiveGoal.MAX);
+		return generator;
+	}
+
+	private static void assertEqualPrograms(LinearProgram expected, LinearProgram actual) {
+		assertEquals(expected.objGoal, actual.objGoal);
+		assertTrue(Arrays.equals(expected.varName, actual.varName));
+		assertTrue(Arrays.equals(expected.constraintNames, actual.constraintNames));
+		assertTrue(Arrays.equals(expected.obj, actual.obj));
+		assertTrue(Arrays.equals(expected.lowerBound, actual.lowerBound));
+		assertTrue(Arrays.equals(expected.upperBound, actual.upperBound));
+		assertTrue(Arrays.equals(expected.senses, actual.senses));
+		assertTrue(Arrays.equals(expected.rightHandSide, actual.rightHandSide));
+		for (int j = 0; j < expected.numVariables; j++) {
+			for (int i = 0; i < expected.constraints.getNumRows(); i++) {
+				assertEquals(expected.constraints.get(i, j), actual.constraints.get(i, j));
+			}
+		}
+	}
+}
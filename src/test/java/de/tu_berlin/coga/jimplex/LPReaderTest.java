@@ -0,0 +1,144 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+public class LPReaderTest extends TestCase {
+
+	public void testReadLP() throws Exception {
+		LPReader reader = read("\\ comment line\n" + "Maximize\n" + " obj: 3 x + 2.5e1 y \\ trailing comment\n"
+				+ "Subject To\n" + " c1: x + 1e-1 y\n" + "   - z <= 4\n" + " c2: -2 x >= -1E+1\n" + "Bounds\n" + " x >= -2\n"
+				+ " -inf <= z <= 3\n" + " y free\n" + "End\n");
+
+		assertEquals(LPReader.SENSE_MAX, reader.objectiveSense());
+		assertEquals(2, reader.noOfConstraints());
+		assertEquals(3, reader.noOfVariables());
+		assertEquals("c1", reader.constraintName(0));
+		assertEquals(25.0, reader.objectiveVector()[1]);
+		assertEquals(0.1, reader.constraintsMatrix().get(0, 1));
+		assertEquals(-1.0, reader.constraintsMatrix().get(0, 2));
+		assertEquals(-2.0, reader.constraintsMatrix().get(1, 0));
+		assertEquals(LPReader.SENSE_GEQ, reader.senseVector()[1]);
+		assertEquals(-10.0, reader.rhsVector()[1]);
+		assertEquals(-2.0, reader.lowerBoundVector()[0]);
+		assertEquals(Double.NEGATIVE_INFINITY, reader.lowerBoundVector()[1]);
+		assertEquals(Double.NEGATIVE_INFINITY, reader.lowerBoundVector()[2]);
+		assertEquals(3.0, reader.upperBoundVector()[2]);
+	}
+
+	public void testErrorLine() throws Exception {
+		try {
+			read("max\n obj: x\nst\n c1: x <= 4\n\n c2: x <= y\nend\n");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(6, e.getErrorOffset());
+			assertEquals("line 6: 'y' is not a valid rhs entry", e.getMessage());
+		}
+	}
+
+	public void testManyVariables() throws Exception {
+		StringBuilder lp = new StringBuilder("min\n obj: x0 + x0\nst\n");
+		for (int i = 0; i < 500; i++) {
+			lp.append(" r").append(i).append(": x").append(i).append(" + 2 x").append(i + 1).append(" - x").append(i)
+					.append(" + x").append(i + 1).append(" >= 1\n");
+		}
+		lp.append("bounds\n x500 <= 7\nend\n");
+		LPReader reader = read(lp.toString());
+
+		assertEquals(500, reader.noOfConstraints());
+		assertEquals(501, reader.noOfVariables());
+		assertEquals(1000, reader.constraintsMatrix().getNumNonZeros());
+		assertEquals(2.0, reader.objectiveVector()[0]);
+		assertEquals("x337", reader.variableName(337));
+		assertEquals("r499", reader.constraintName(499));
+		assertEquals(0.0, reader.constraintsMatrix().get(123, 123));
+		assertEquals(3.0, reader.constraintsMatrix().get(123, 124));
+		assertEquals(7.0, reader.upperBoundVector()[500]);
+		assertEquals(Double.POSITIVE_INFINITY, reader.upperBoundVector()[499]);
+	}
+
+	public void testAmbiguousConstraintName() throws Exception {
+		try {
+			read("max\n obj: x\nst\n x <= 4\n c0: x <= 3\nend\n");
+			fail();
+		} catch (ParseException e) {
+			assertEquals(5, e.getErrorOffset());
+		}
+	}
+
+	public void testParallelMatchesSequential() throws Exception {
+		StringBuilder lp = new StringBuilder("max\n obj: 2 y7 + x3\nst\n");
+		Random random = new Random(42);
+		for (int i = 0; i < 300; i++) {
+			if (random.nextBoolean())
+				lp.append(" r").append(i).append(":");
+			lp.append(" ").append(random.nextInt(9) + 1).append(" x").append(random.nextInt(50));
+			if (random.nextInt(4) == 0)
+				lp.append(" \\ continued <= 1\n");
+			lp.append(" - y").append(random.nextInt(50));
+			if (random.nextInt(4) == 0)
+				lp.append(" >=\n");
+			else
+				lp.append(" <= ");
+			lp.append(random.nextInt(100)).append("\n");
+		}
+		lp.append("bounds\n y7 <= 3\nend\n");
+		File file = write(lp.toString());
+		LPReader sequential = new LPReader(file.getPath());
+		sequential.readLP();
+
+		for (int chunkSize : new int[] { 1, 64, 1000 }) {
+			LPReader parallel = new LPReader(file.getPath());
+			parallel.readLP(ForkJoinPool.commonPool(), chunkSize);
+
+			assertTrue(Arrays.equals(sequential.varName, parallel.varName));
+			assertTrue(Arrays.equals(sequential.constrName, parallel.constrName));
+			assertTrue(Arrays.equals(sequential.sense, parallel.sense));
+			assertTrue(Arrays.equals(sequential.rhs, parallel.rhs));
+			assertTrue(Arrays.equals(sequential.obj, parallel.obj));
+			assertTrue(Arrays.equals(sequential.ubound, parallel.ubound));
+			SparseMatrix expected = sequential.constraintsMatrix();
+			SparseMatrix actual = parallel.constraintsMatrix();
+			assertEquals(expected.getNumNonZeros(), actual.getNumNonZeros());
+			for (int j = 0; j < expected.getNumColumns(); j++) {
+				assertEquals(expected.columnEnd(j), actual.columnEnd(j));
+				for (int k = expected.columnStart(j); k < expected.columnEnd(j); k++) {
+					assertEquals(expected.rowIndex(k), actual.rowIndex(k));
+					assertEquals(expected.value(k), actual.value(k));
+				}
+			}
+		}
+	}
+
+	public void testParallelErrorLine() throws Exception {
+		File file = write("max\n obj: x\nst\n c1: x <= 4\n c2: x + y <= 5\n\n c3: x <= y\nend\n");
+		try {
+			new LPReader(file.getPath()).readLP(ForkJoinPool.commonPool(), 8);
+			fail();
+		} catch (ParseException e) {
+			assertEquals("line 7: 'y' is not a valid rhs entry", e.getMessage());
+		}
+	}
+
+	private static LPReader read(String content) throws IOException, ParseException {
+		LPReader reader = new LPReader(write(content).getPath());
+		reader.readLP();
+		return reader;
+	}
+
+	private static File write(String content) throws IOException {
+		File file = File.createTempFile("jimplex", ".lp");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+		return file;
+	}
+}
@@ -0,0 +1,76 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.text.ParseException;
+
+import junit.framework.TestCase;
+import de.tu_berlin.coga.jimplex.LinearProgram.ObjectiveGoal;
+import de.tu_berlin.coga.jimplex.LinearProgram.Sense;
+
+public class MPSReaderTest extends TestCase {
+	private static final double EPSILON = 1e-9;
+
+	public void testFixedFormat() throws Exception {
+		LinearProgram program = new MPSReader(SolverTest.resource("ranged.mps"), MPSReader.Format.FIXED).read();
+
+		assertEquals(3, program.constraints.getNumRows());
+		assertEquals(6, program.numVariables);
+		assertEquals("LIM 1", program.constraintNames[0]);
+		assertEquals("RgLIM 1", program.varName[3]);
+		assertEquals(5.0, program.objConstant);
+		assertEquals(-1.0, program.constraints.get(2, 2));
+		assertEquals(Double.NEGATIVE_INFINITY, program.lowerBound[2]);
+		assertEquals(5.0, program.upperBound[2]);
+		// LIM 1: 2 <= x + y <= 4 becomes x + y - RgLIM 1 = 2
+		assertEquals(Sense.EQ, program.senses[0]);
+		assertEquals(2.0, program.rightHandSide[0]);
+		assertEquals(2.0, program.upperBound[3]);
+		// MYEQN: y - z = 1 with range -2 becomes y - z - RgMYEQN = -1
+		assertEquals(-1.0, program.rightHandSide[2]);
+		assertEquals(2.0, program.upperBound[5]);
+
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.solve();
+		assertEquals(6.0, solver.getObjectiveValue(), EPSILON);
+	}
+
+	public void testFreeFormat() throws Exception {
+		File file = File.createTempFile("jimplex", ".mps");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("NAME free\nOBJSENSE\n    MAX\nROWS\n N obj\n L c1\n G c2\nCOLUMNS\n"
+				+ " MARKER 'MARKER' 'INTORG'\n x obj 1 c1 1\n x c2 1\n MARKER 'MARKER' 'INTEND'\n y obj 1 c1 2\n"
+				+ "RHS\n c1 10 c2 -4\n obj 3\nBOUNDS\n UP BND y -2\n FR x\nENDATA\n");
+		writer.close();
+
+		LinearProgram program = new MPSReader(file.getPath()).read();
+
+		assertEquals(ObjectiveGoal.MAX, program.objGoal);
+		assertEquals(2, program.numVariables);
+		assertEquals(-3.0, program.objConstant);
+		assertEquals(10.0, program.rightHandSide[0]);
+		assertEquals(-4.0, program.rightHandSide[1]);
+		assertEquals(2.0, program.constraints.get(0, 1));
+		// A negative upper bound with a zero lower bound frees the lower bound
+		assertEquals(Double.NEGATIVE_INFINITY, program.lowerBound[1]);
+		assertEquals(-2.0, program.upperBound[1]);
+		assertEquals(Double.NEGATIVE_INFINITY, program.lowerBound[0]);
+	}
+
+	public void testErrorLine() throws Exception {
+		File file = File.createTempFile("jimplex", ".mps");
+		file.deleteOnExit();
+		FileWriter writer = new FileWriter(file);
+		writer.write("NAME bad\nROWS\n N obj\n L c1\nCOLUMNS\n x obj 1 c2 1\nENDATA\n");
+		writer.close();
+
+		try {
+			new MPSReader(file.getPath()).read();
+			fail();
+		} catch (ParseException e) {
+			assertEquals("line 6: unknown row 'c2'", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class ModelCacheTest extends TestCase {
+
+	public void testHitsAndCopies() throws Exception {
+		ModelCache cache = new ModelCache(10, 1 << 20);
+		String path = SolverTest.resource("small.lp");
+
+		LinearProgram first = cache.get(path);
+		first.normalize();
+		RevisedSimplex firstSolver = new RevisedSimplex(first);
+		firstSolver.solve();
+		// the same content under a different path
+		LinearProgram second = cache.get(copy(path, ".lp").getPath());
+
+		assertEquals(1, cache.missCount());
+		assertEquals(1, cache.hitCount());
+		assertEquals(1, cache.size());
+		assertEquals(0, second.getNumSlackVariables());
+		assertTrue(second.getNumVariables() < first.getNumVariables());
+		second.normalize();
+		RevisedSimplex secondSolver = new RevisedSimplex(second);
+		secondSolver.solve();
+		assertEquals(firstSolver.getObjectiveValue(), secondSolver.getObjectiveValue(), 1e-9);
+	}
+
+	public void testEviction() throws Exception {
+		ModelCache cache = new ModelCache(2, 1 << 20);
+		String small = SolverTest.resource("small.lp");
+		String bounded = SolverTest.resource("bounded.lp");
+		String scaled = SolverTest.resource("scaled.lp");
+
+		cache.get(small);
+		cache.get(bounded);
+		cache.get(small);
+		cache.get(scaled);
+		assertEquals(2, cache.size());
+		// bounded.lp was the least recently used
+		cache.get(small);
+		cache.get(bounded);
+		assertEquals(2, cache.hitCount());
+		assertEquals(4, cache.missCount());
+
+		long size = ModelCache.estimateSize(new LinearProgram(bounded));
+		cache = new ModelCache(10, size);
+		cache.get(bounded);
+		cache.get(small);
+		assertEquals(1, cache.size());
+		assertTrue(cache.memoryUsage() <= size);
+	}
+
+	private static File copy(String path, String suffix) throws IOException {
+		File file = File.createTempFile("jimplex", suffix);
+		file.deleteOnExit();
+		FileInputStream in = new FileInputStream(path);
+		FileOutputStream out = new FileOutputStream(file);
+		byte[] buffer = new byte[4096];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		in.close();
+		out.close();
+		return file;
+	}
+}
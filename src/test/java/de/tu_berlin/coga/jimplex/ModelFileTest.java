@@ -0,0 +1,120 @@
+package de.tu_berlin.coga.jimplex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ModelFileTest extends TestCase {
+
+	public void testRoundTrip() throws Exception {
+		LinearProgram program = new MPSReader(SolverTest.resource("ranged.mps"), MPSReader.Format.FIXED).read();
+		LinearProgram loaded = writeAndRead(program);
+		assertEqualPrograms(program, loaded);
+
+		program.normalize();
+		loaded = writeAndRead(program);
+		assertEqualPrograms(program, loaded);
+		assertEquals(program.getNumSlackVariables(), loaded.getNumSlackVariables());
+
+		RevisedSimplex programSolver = new RevisedSimplex(program);
+		programSolver.solve();
+		RevisedSimplex loadedSolver = new RevisedSimplex(loaded);
+		loadedSolver.solve();
+		assertEquals(programSolver.getObjectiveValue(), loadedSolver.getObjectiveValue(), 1e-9);
+	}
+
+	public void testLargerProgram() throws Exception {
+		LinearProgram program = new LinearProgram(SolverTest.resource("random.lp"));
+		assertEqualPrograms(program, writeAndRead(program));
+	}
+
+	public void testVersionCheck() throws Exception {
+		File file = File.createTempFile("jimplex", ".jmpx");
+		file.deleteOnExit();
+		new ModelFile(file.getPath()).write(new LinearProgram(SolverTest.resource("small.lp")));
+		RandomAccessFile raw = new RandomAccessFile(file, "rw");
+		raw.seek(4);
+		raw.write(ModelFile.VERSION + 1);
+		raw.close();
+
+		try {
+			new ModelFile(file.getPath()).read();
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("unsupported version"));
+		}
+	}
+
+	public void testCorruptPayload() throws Exception {
+		File file = File.createTempFile("jimplex", ".jmpx");
+		file.deleteOnExit();
+		new ModelFile(file.getPath()).write(new LinearProgram(SolverTest.resource("small.lp")));
+		RandomAccessFile raw = new RandomAccessFile(file, "rw");
+		byte[] original = new byte[(int) raw.length()];
+		raw.readFully(original);
+
+		// Every flipped byte of the payload either loads or is reported
+		for (int pos = ModelFile.HEADER_SIZE; pos < original.length; pos++) {
+			raw.seek(pos);
+			raw.write(original[pos] ^ 0xff);
+			try {
+				new ModelFile(file.getPath()).read();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("truncated or corrupt"));
+			}
+			raw.seek(pos);
+			raw.write(original[pos]);
+		}
+
+		// The senses are the bytes in front of the name pool
+		raw.seek(original.length - poolSize(original) - 1);
+		raw.write(Byte.MAX_VALUE);
+		raw.close();
+		try {
+			new ModelFile(file.getPath()).read();
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("truncated or corrupt"));
+		}
+	}
+
+	private static int poolSize(byte[] file) {
+		return ByteBuffer.wrap(file, 28, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+	}
+
+	private static LinearProgram writeAndRead(LinearProgram program) throws IOException {
+		File file = File.createTempFile("jimplex", ".jmpx");
+		file.deleteOnExit();
+		new ModelFile(file.getPath()).write(program);
+		return new ModelFile(file.getPath()).read();
+	}
+
+	private static void assertEqualPrograms(LinearProgram expected, LinearProgram actual) {
+		assertEquals(expected.numVariables, actual.numVariables);
+		assertEquals(expected.objGoal, actual.objGoal);
+		assertEquals(expected.objConstant, actual.objConstant);
+		assertTrue(Arrays.equals(expected.obj, actual.obj));
+		assertTrue(Arrays.equals(expected.lowerBound, actual.lowerBound));
+		assertTrue(Arrays.equals(expected.upperBound, actual.upperBound));
+		assertTrue(Arrays.equals(expected.rightHandSide, actual.rightHandSide));
+		assertTrue(Arrays.equals(expected.senses, actual.senses));
+		assertTrue(Arrays.equals(expected.constraintNames, actual.constraintNames));
+		assertTrue(Arrays.equals(expected.varName, actual.varName));
+		SparseMatrix A = expected.constraints;
+		SparseMatrix B = actual.constraints;
+		assertEquals(A.getNumRows(), B.getNumRows());
+		assertEquals(A.getNumNonZeros(), B.getNumNonZeros());
+		for (int j = 0; j < A.getNumColumns(); j++) {
+			assertEquals(A.columnStart(j), B.columnStart(j));
+			for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+				assertEquals(A.rowIndex(k), B.rowIndex(k));
+				assertEquals(A.value(k), B.value(k));
+			}
+		}
+	}
+}
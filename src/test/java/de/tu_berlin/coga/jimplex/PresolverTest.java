@@ -0,0 +1,61 @@
+package de.tu_berlin.coga.jimplex;
+
+import junit.framework.TestCase;
+import de.tu_berlin.coga.jimplex.Presolver.Reduction;
+
+public class PresolverTest extends TestCase {
+	private static final double EPSILON = 1e-9;
+
+	public void testReductions() throws Exception {
+		LinearProgram program = new LinearProgram(SolverTest.resource("presolve.lp"));
+		Presolver presolver = new Presolver(program);
+
+		LinearProgram reduced = presolver.presolve();
+
+		assertEquals(1, presolver.getRemovedColumns(Reduction.FIXED_COLUMN));
+		assertEquals(1, presolver.getRemovedColumns(Reduction.EMPTY_COLUMN));
+		assertEquals(2, presolver.getRemovedRows(Reduction.SINGLETON_ROW));
+		assertEquals(1, presolver.getRemovedRows(Reduction.DUPLICATE_ROW));
+		assertEquals(1, presolver.getRemovedRows(Reduction.REDUNDANT_ROW));
+		assertEquals(4, reduced.getNumVariables());
+		assertEquals(3, reduced.constraints.getNumRows());
+	}
+
+	public void testPostsolve() throws Exception {
+		LinearProgram program = new LinearProgram(SolverTest.resource("presolve.lp"));
+		Presolver presolver = new Presolver(program);
+		LinearProgram reduced = presolver.presolve();
+		reduced.normalize();
+		RevisedSimplex reducedSolver = new RevisedSimplex(reduced);
+		int[] reducedBasis = reducedSolver.solve();
+		// The removed columns contribute to the objective of the reduced program
+		assertEquals(-32.0, reducedSolver.getObjectiveValue(), EPSILON);
+
+		int[] basis = presolver.postsolve(reducedSolver.getSolution(), reducedBasis);
+
+		assertEquals(32.0, program.getObjectiveValue(), EPSILON);
+		assertEquals(2.0, program.variables[3], EPSILON);
+		assertEquals(2.0, program.variables[4], EPSILON);
+
+		// The translated basis is optimal for the original program
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.solve(basis);
+		assertEquals(-32.0, solver.getObjectiveValue(), EPSILON);
+		assertEquals(1, solver.getIterations());
+	}
+
+	public void testObjectiveConstant() throws Exception {
+		LinearProgram program = new MPSReader(SolverTest.resource("ranged.mps"), MPSReader.Format.FIXED).read();
+		Presolver presolver = new Presolver(program);
+		LinearProgram reduced = presolver.presolve();
+		reduced.normalize();
+		RevisedSimplex reducedSolver = new RevisedSimplex(reduced);
+		int[] reducedBasis = reducedSolver.solve();
+		assertEquals(6.0, reducedSolver.getObjectiveValue(), EPSILON);
+
+		presolver.postsolve(reducedSolver.getSolution(), reducedBasis);
+
+		assertEquals(6.0, program.getObjectiveValue(), EPSILON);
+	}
+}
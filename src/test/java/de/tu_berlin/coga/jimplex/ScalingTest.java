@@ -0,0 +1,23 @@
+package de.tu_berlin.coga.jimplex;
+
+import junit.framework.TestCase;
+
+public class ScalingTest extends TestCase {
+
+	public void testEquilibratedPowersOfTwo() {
+		SparseMatrix A = new SparseMatrix.Builder(2, 3).add(0, 0, 1e-4).add(0, 1, 3e3).add(1, 1, 2e7).add(1, 2, 0.5)
+				.build();
+
+		Scaling scaling = new Scaling(A);
+
+		for (int j = 0; j < A.getNumColumns(); j++) {
+			double factor = scaling.getColumnScale(j);
+			assertEquals(factor, Math.scalb(1.0, Math.getExponent(factor)));
+			double max = 0;
+			for (int k = A.columnStart(j); k < A.columnEnd(j); k++) {
+				max = Math.max(max, Math.abs(A.value(k) * scaling.getRowScale(A.rowIndex(k)) * factor));
+			}
+			assertTrue(max > 0.5 && max < 2);
+		}
+	}
+}
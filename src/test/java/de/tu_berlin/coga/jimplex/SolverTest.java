@@ -1,13 +1,36 @@
 package de.tu_berlin.coga.jimplex;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import junit.framework.Test;
 import junit.framework.TestCase;
 import junit.framework.TestSuite;
+import de.tu_berlin.coga.jimplex.SolverStatistics.Phase;
+import de.tu_berlin.coga.jimplex.SolverStatistics.Step;
+import de.tu_berlin.coga.jimplex.basis.LUFactorization;
+import de.tu_berlin.coga.jimplex.pricing.DantzigPricing;
+import de.tu_berlin.coga.jimplex.pricing.DevexPricing;
+import de.tu_berlin.coga.jimplex.pricing.MultiplePricing;
+import de.tu_berlin.coga.jimplex.pricing.ParallelPricing;
+import de.tu_berlin.coga.jimplex.pricing.PartialPricing;
+import de.tu_berlin.coga.jimplex.pricing.PricingStrategy;
+import de.tu_berlin.coga.jimplex.pricing.SteepestEdgePricing;
 
 /**
  * Unit test for Solver.
  */
 public class SolverTest extends TestCase {
+	private static final double EPSILON = 1e-9;
+
 	/**
 	 * Create the test case
 	 * 
@@ -31,4 +54,305 @@ public class SolverTest extends TestCase {
 	public void testSolver() {
 		assertTrue(true);
 	}
+
+	public void testSmallProgram() throws Exception {
+		LinearProgram program = new LinearProgram(resource("small.lp"));
+		program.normalize();
+
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.solve();
+
+		assertEquals(-1.0, solver.getObjectiveValue(), EPSILON);
+	}
+
+	public void testBoundedProgram() throws Exception {
+		LinearProgram program = new LinearProgram(resource("bounded.lp"));
+		program.normalize();
+
+		RevisedSimplex solver = new RevisedSimplex(program);
+		solver.solve();
+
+		assertEquals(-16.0, solver.getObjectiveValue(), EPSILON);
+		double[] variables = solver.getSolution();
+		for (int i = 0; i < program.numVariables; i++) {
+			assertTrue(variables[i] >= program.lowerBound[i] - EPSILON);
+			assertTrue(variables[i] <= program.upperBound[i] + EPSILON);
+		}
+	}
+
+	public void testScaledProgram() throws Exception {
+		LinearProgram unscaledProgram = new LinearProgram(resource("scaled.lp"));
+		unscaledProgram.normalize();
+		RevisedSimplex unscaled = new RevisedSimplex(unscaledProgram);
+		unscaled.setScaling(false);
+		unscaled.solve();
+
+		LinearProgram program = new LinearProgram(resource("scaled.lp"));
+		program.normalize();
+		RevisedSimplex scaled = new RevisedSimplex(program);
+		scaled.solve();
+
+		assertEquals(unscaled.getObjectiveValue(), scaled.getObjectiveValue(), 1e-6);
+		assertTrue(scaled.getIterations() < unscaled.getIterations());
+		double[] variables = scaled.getSolution();
+		for (int i = 0; i < program.numVariables; i++) {
+			assertTrue(variables[i] <= program.upperBound[i] * (1 + EPSILON));
+		}
+	}
+
+	public void testPricingStrategies() throws Exception {
+		PricingStrategy[] strategies = { new DantzigPricing(), new DevexPricing(), new SteepestEdgePricing(),
+				new PartialPricing(7), new MultiplePricing(4) };
+		for (PricingStrategy pricing : strategies) {
+			LinearProgram program = new LinearProgram(resource("random.lp"));
+			program.normalize();
+			RevisedSimplex solver = new RevisedSimplex(program);
+			solver.setPricingStrategy(pricing);
+
+			solver.solve();
+
+			assertEquals(-2423.1992093170393, solver.getObjectiveValue(), 1e-6);
+			assertTrue(solver.getIterations() > 0);
+		}
+	}
+
+	public void testParallelPricingMatchesSequential() throws Exception {
+		LinearProgram sequential = new LinearProgram(resource("random.lp"));
+		sequential.normalize();
+		RevisedSimplex sequentialSolver = new RevisedSimplex(sequential);
+		sequentialSolver.setPricingStrategy(new SteepestEdgePricing());
+		int[] expected = sequentialSolver.solve();
+
+		LinearProgram parallel = new LinearProgram(resource("random.lp"));
+		parallel.normalize();
+		RevisedSimplex parallelSolver = new RevisedSimplex(parallel);
+		parallelSolver.setPricingStrategy(new ParallelPricing(new SteepestEdgePricing(), ForkJoinPool.commonPool(), 0, 4));
+		int[] actual = parallelSolver.solve();
+
+		assertTrue(Arrays.equals(expected, actual));
+		assertEquals(sequentialSolver.getIterations(), parallelSolver.getIterations());
+	}
+
+	public void testDualSimplexReoptimization() throws Exception {
+		LinearProgram program = new LinearProgram(resource("random.lp"));
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		int[] B = solver.solve();
+		int coldIterations = solver.getIterations();
+
+		for (int i = 0; i < 3; i++) {
+			program.rightHandSide[i] *= 1.05;
+		}
+		RevisedSimplex cold = new RevisedSimplex(program);
+		cold.solve();
+		double expected = cold.getObjectiveValue();
+		solver.solveDual(B);
+
+		assertEquals(expected, solver.getObjectiveValue(), 1e-6);
+		assertTrue(solver.getIterations() < coldIterations);
+	}
+
+	public void testWarmStart() throws Exception {
+		LinearProgram program = new LinearProgram(resource("random.lp"));
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		int[] B = solver.solve();
+		double expected = solver.getObjectiveValue();
+
+		solver.solve(B.clone());
+		assertEquals(expected, solver.getObjectiveValue(), 1e-6);
+		assertEquals(1, solver.getIterations());
+
+		// Duplicated, out of range and missing columns are repaired
+		int[] broken = Arrays.copyOf(B, B.length - 2);
+		broken[0] = broken[1];
+		broken[2] = program.numVariables + 5;
+		solver.solve(broken);
+		assertEquals(expected, solver.getObjectiveValue(), 1e-6);
+	}
+
+	public void testStatistics() throws Exception {
+		LinearProgram program = new LinearProgram(resource("random.lp"));
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		int[] B = solver.solve();
+		SolverStatistics statistics = solver.getStatistics();
+
+		assertEquals(solver.getIterations(), statistics.getIterations());
+		assertTrue(statistics.getIterations(Phase.PHASE_ONE) > 0);
+		assertTrue(statistics.getIterations(Phase.PHASE_TWO) > 0);
+		assertEquals(0, statistics.getIterations(Phase.DUAL));
+		assertEquals(0, statistics.getNanos(Step.PRICING));
+		assertTrue(statistics.getPeakWorkspaceBytes() > 12 * program.constraints.getNumNonZeros());
+
+		solver.setTiming(true);
+		for (int i = 0; i < 3; i++) {
+			program.rightHandSide[i] *= 1.05;
+		}
+		solver.solveDual(B);
+		statistics = solver.getStatistics();
+		assertEquals(solver.getIterations(), statistics.getIterations(Phase.DUAL));
+		assertEquals(0, statistics.getIterations(Phase.PHASE_ONE));
+		assertTrue(statistics.getNanos(Phase.DUAL) > 0);
+		assertTrue(statistics.getNanos(Step.FACTORIZE) > 0);
+		assertTrue(statistics.getNanos(Phase.DUAL) >= statistics.getNanos(Step.RATIO_TEST));
+	}
+
+	public void testProgressListener() throws Exception {
+		LinearProgram program = new LinearProgram(resource("random.lp"));
+		program.normalize();
+		RevisedSimplex solver = new RevisedSimplex(program);
+		final List<Integer> all = new ArrayList<Integer>();
+		solver.setProgressListener(new ProgressListener() {
+			@Override
+			public void iteration(Phase phase, int iteration, double objective, double infeasibility, int entering,
+					int leaving) {
+				all.add(iteration);
+			}
+		}, 1);
+		solver.solve();
+
+		final List<Integer> reported = new ArrayList<Integer>();
+		final int numVariables = program.numVariables;
+		final int numConstraints = program.constraints.getNumRows();
+		solver.setProgressListener(new ProgressListener() {
+			@Override
+			public void iteration(Phase phase, int iteration, double objective, double infeasibility, int entering,
+					int leaving) {
+				reported.add(iteration);
+				assertTrue(entering >= 0 && entering < numVariables);
+				assertTrue(leaving >= -numConstraints && leaving < numVariables);
+				assertTrue(infeasibility >= -EPSILON);
+				if (phase == Phase.PHASE_ONE) {
+					assertTrue(objective >= -EPSILON);
+				}
+			}
+		}, 5);
+		solver.solve();
+
+		// Every fifth pivot is reported, also across the end of Phase I
+		assertFalse(reported.isEmpty());
+		assertEquals(all.size() / 5, reported.size());
+		for (int i = 0; i < reported.size(); i++) {
+			assertEquals(all.get(5 * i + 4), reported.get(i));
+		}
+		assertTrue(reported.get(reported.size() - 1) < solver.getIterations());
+	}
+
+	public void testSharedProgram() throws Exception {
+		LinearProgram original = new LinearProgram(resource("random.lp"));
+		final LinearProgram program = original.normalized();
+		assertEquals(0, original.getNumSlackVariables());
+		assertTrue(program.getNumSlackVariables() > 0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Double>> results = new ArrayList<Future<Double>>();
+			for (int i = 0; i < 8; i++) {
+				final PricingStrategy pricing = (i % 2 == 0) ? new DantzigPricing() : new SteepestEdgePricing();
+				results.add(executor.submit(new Callable<Double>() {
+					@Override
+					public Double call() throws Exception {
+						RevisedSimplex solver = new RevisedSimplex(program);
+						solver.setPricingStrategy(pricing);
+						solver.solve();
+						return solver.getObjectiveValue();
+					}
+				}));
+			}
+			for (Future<Double> result : results) {
+				assertEquals(-2423.1992093170393, result.get(), 1e-6);
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(0.0, program.getObjectiveValue());
+	}
+
+	public void testIterationsDoNotAllocate() throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return;
+		}
+		final com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+		final long thread = Thread.currentThread().getId();
+		if (!allocation.isThreadAllocatedMemorySupported() || !allocation.isThreadAllocatedMemoryEnabled()) {
+			return;
+		}
+		PricingStrategy[] strategies = { new DantzigPricing(), new SteepestEdgePricing(), new PartialPricing(7) };
+		for (PricingStrategy pricing : strategies) {
+			LPGenerator generator = new LPGenerator(60, 90, 3);
+			generator.setDensity(0.1);
+			generator.setSenses(2, 1, 1);
+			LinearProgram program = generator.generate().normalized();
+			final Phase[] phases = new Phase[10000];
+			final long[] allocated = new long[phases.length];
+			final int[] count = new int[1];
+			RevisedSimplex solver = new RevisedSimplex(program);
+			solver.setPricingStrategy(pricing);
+			// The first solve grows the pools of the factorization to the size
+			// that the program needs
+			solver.solve();
+			solver.setProgressListener(new ProgressListener() {
+				@Override
+				public void iteration(Phase phase, int iteration, double objective, double infeasibility, int entering,
+						int leaving) {
+					allocated[count[0]] = allocation.getThreadAllocatedBytes(thread);
+					phases[count[0]++] = phase;
+				}
+			}, 1);
+			solver.solve();
+
+			// Between two reports of the same phase lies one complete iteration,
+			// including refactorizations
+			int steady = 0;
+			long bytes = 0;
+			for (int i = 1; i < count[0]; i++) {
+				if (phases[i] == phases[i - 1]) {
+					bytes += allocated[i] - allocated[i - 1];
+					steady++;
+				}
+			}
+			assertTrue(steady > 50);
+			assertEquals(pricing.getClass().getSimpleName(), 0, bytes);
+		}
+	}
+
+	public void testIncrementalUpdates() throws Exception {
+		PricingStrategy[] strategies = { new DantzigPricing(), new DevexPricing(), new SteepestEdgePricing(),
+				new PartialPricing(7), new MultiplePricing(4) };
+		for (PricingStrategy pricing : strategies) {
+			LinearProgram program = new LinearProgram(resource("random.lp"));
+			program.normalize();
+			RevisedSimplex solver = new RevisedSimplex(program);
+			solver.setPricingStrategy(pricing);
+			solver.setBasisFactorization(new LUFactorization(10));
+			solver.setIncrementalUpdates(true);
+
+			solver.solve();
+
+			assertEquals(-2423.1992093170393, solver.getObjectiveValue(), 1e-6);
+			assertTrue(solver.getStatistics().getRefactorizations() > 0);
+			assertTrue(solver.getStatistics().getMaxDrift() < 1e-6);
+		}
+
+		for (long seed = 1; seed <= 5; seed++) {
+			LPGenerator generator = new LPGenerator(40, 60, seed);
+			generator.setDensity(0.2);
+			generator.setDegeneracy(0.3);
+			generator.setSenses(1, 1, 1);
+			generator.setBoundTypes(0.2, 0.3, 0.2);
+			LinearProgram program = generator.generate().normalized();
+			RevisedSimplex solver = new RevisedSimplex(program);
+			solver.setIncrementalUpdates(true);
+
+			solver.solve();
+
+			assertEquals(generator.getOptimalValue(), solver.getObjectiveValue(), 1e-6);
+		}
+	}
+
+	static String resource(String name) {
+		return SolverTest.class.getClassLoader().getResource(name).getPath();
+	}
 }
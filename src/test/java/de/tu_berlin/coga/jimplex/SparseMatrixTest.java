@@ -0,0 +1,31 @@
+package de.tu_berlin.coga.jimplex;
+
+import junit.framework.TestCase;
+
+public class SparseMatrixTest extends TestCase {
+
+	public void testBuilderSortsAndMergesTriplets() {
+		SparseMatrix matrix = new SparseMatrix.Builder(3, 2).add(2, 0, 1.0).add(0, 0, 2.0).add(2, 0, 3.0).add(1, 1, -1.0)
+				.build();
+
+		assertEquals(3, matrix.getNumNonZeros());
+		assertEquals(2.0, matrix.get(0, 0));
+		assertEquals(0.0, matrix.get(1, 0));
+		assertEquals(4.0, matrix.get(2, 0));
+		assertEquals(-1.0, matrix.get(1, 1));
+		assertEquals(0, matrix.rowIndex(matrix.columnStart(0)));
+	}
+
+	public void testTranspose() {
+		double[][] dense = { { 1, 0, 2 }, { 0, 3, 0 } };
+		SparseMatrix transposed = SparseMatrix.fromDense(dense, 3).transpose();
+
+		assertEquals(3, transposed.getNumRows());
+		assertEquals(2, transposed.getNumColumns());
+		for (int i = 0; i < 2; i++) {
+			for (int j = 0; j < 3; j++) {
+				assertEquals(dense[i][j], transposed.get(j, i));
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package de.tu_berlin.coga.jimplex.basis;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import de.tu_berlin.coga.jimplex.SparseMatrix;
+import de.tu_berlin.coga.jimplex.exceptions.SingularBasisException;
+
+public class BasisFactorizationTest extends TestCase {
+	private static final double EPSILON = 1e-8;
+
+	public void testLUSolvesAfterUpdates() {
+		assertSolvesAfterUpdates(new LUFactorization(20));
+	}
+
+	public void testProductFormSolvesAfterUpdates() {
+		assertSolvesAfterUpdates(new ProductFormInverse(20));
+	}
+
+	private static void assertSolvesAfterUpdates(BasisFactorization basis) {
+		Random random = new Random(42);
+		int m = 30;
+		int n = 90;
+		SparseMatrix A = randomMatrix(random, m, n);
+		int[] B = new int[m];
+		for (int i = 0; i < m; i++) {
+			B[i] = i;
+		}
+
+		basis.factorize(A, B);
+		assertSolves(random, A, B, basis);
+
+		int updates = 0;
+		while (updates < 60) {
+			int position = random.nextInt(m);
+			int column = m + random.nextInt(n - m);
+			if (contains(B, column)) {
+				continue;
+			}
+			// Only replace if the new basis stays well conditioned
+			double[] alpha = new double[m];
+			A.copyColumn(column, alpha);
+			basis.ftran(alpha);
+			if (Math.abs(alpha[position]) < 0.1) {
+				continue;
+			}
+			B[position] = column;
+			basis.update(position, column);
+			if (basis.needsRefactorization()) {
+				basis.factorize(A, B);
+			}
+			assertSolves(random, A, B, basis);
+			updates++;
+		}
+	}
+
+	public void testReportsSingularColumns() {
+		double[][] dense = { { 1, 2, 0 }, { 2, 4, 0 }, { 0, 0, 1 } };
+		SparseMatrix A = SparseMatrix.fromDense(dense, 3);
+		try {
+			new LUFactorization().factorize(A, new int[] { 0, 1, 2 });
+			fail();
+		} catch (SingularBasisException e) {
+			assertEquals(1, e.getPositions().length);
+			assertEquals(1, e.getRows().length);
+		}
+	}
+
+	static SparseMatrix randomMatrix(Random random, int m, int n) {
+		SparseMatrix.Builder builder = new SparseMatrix.Builder(m, n);
+		for (int j = 0; j < n; j++) {
+			builder.add(j % m, j, 1 + random.nextDouble());
+			for (int k = 0; k < 3; k++) {
+				builder.add(random.nextInt(m), j, random.nextDouble() - 0.5);
+			}
+		}
+		return builder.build();
+	}
+
+	private static void assertSolves(Random random, SparseMatrix A, int[] B, BasisFactorization basis) {
+		int m = B.length;
+		double[] x = new double[m];
+		for (int i = 0; i < m; i++) {
+			x[i] = random.nextDouble();
+		}
+
+		// A_B x = a
+		double[] a = new double[m];
+		for (int p = 0; p < m; p++) {
+			for (int k = A.columnStart(B[p]); k < A.columnEnd(B[p]); k++) {
+				a[A.rowIndex(k)] += A.value(k) * x[p];
+			}
+		}
+		basis.ftran(a);
+		for (int p = 0; p < m; p++) {
+			assertEquals(x[p], a[p], EPSILON);
+		}
+
+		// y^T A_B = c^T
+		double[] c = new double[m];
+		for (int p = 0; p < m; p++) {
+			c[p] = A.dotColumn(B[p], x);
+		}
+		basis.btran(c);
+		for (int i = 0; i < m; i++) {
+			assertEquals(x[i], c[i], EPSILON);
+		}
+	}
+
+	private static boolean contains(int[] B, int column) {
+		for (int j : B) {
+			if (j == column) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,26 @@
+* ranged test model, optimum 1 plus objective constant 5
+NAME          RANGED
+ROWS
+ N  COST
+ L  LIM 1
+ G  LIM2
+ E  MYEQN
+ N  FREE
+COLUMNS
+    X         COST                 1   LIM 1                1
+    X         LIM2                 1
+    Y         COST                 2   LIM 1                1
+    Y         MYEQN                1   FREE                 7
+    Z         COST                -1   LIM2                 1
+    Z         MYEQN               -1
+RHS
+    RHS       COST                -5   LIM 1                4
+    RHS       LIM2                 1   MYEQN                1
+RANGES
+    RNG       LIM 1                2   LIM2                 3
+    RNG       MYEQN               -2
+BOUNDS
+ UP BND       X                    3
+ MI BND       Z
+ UP BND       Z                    5
+ENDATA